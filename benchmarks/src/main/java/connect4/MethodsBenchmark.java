@@ -0,0 +1,109 @@
+package connect4;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+
+The time and allocation of one call of checkForWin, heuristic, getPossibleStates and minimax, through the String[][] methods
+in Connect4 and on the bitboard the search uses, for the opening, midgame and endgame positions of the corpus (see
+connect4.Benchmark). Every call takes the next position of its group. Built with the rest of the tree:
+
+    mvn -B package
+    java -jar benchmarks/target/benchmarks.jar MethodsBenchmark -prof gc
+
+prints ns/op, and with -prof gc the bytes allocated per call (gc.alloc.rate.norm) and the allocation rate. These are the
+numbers to compare from one change to the next, Benchmark methods is only a quick look without the build.
+
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MethodsBenchmark {
+    @Param({"opening", "midgame", "endgame"})
+    public String group;
+
+    private Bitboard[] positions;
+    private Connect4[] games;
+    private Search search;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        positions = connect4.Benchmark.group(Arrays.asList(connect4.Benchmark.GROUP_NAMES).indexOf(group));
+        games = new Connect4[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            games[i] = new Connect4(positions[i]);
+        }
+        search = new Search();
+    }
+
+    //the index of the next position of the group
+    private int next() {
+        int i = next;
+        next = i + 1 == positions.length ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public boolean checkForWinBoard() {
+        Connect4 game = games[next()];
+        return game.checkForWin(true, game.board);
+    }
+
+    @Benchmark
+    public boolean checkForWinBitboard() {
+        return positions[next()].isWin(true);
+    }
+
+    @Benchmark
+    public int heuristicBoard() {
+        Connect4 game = games[next()];
+        return game.heuristic(game.board, true);
+    }
+
+    @Benchmark
+    public int heuristicBitboard() {
+        return Search.heuristic(positions[next()], true);
+    }
+
+    @Benchmark
+    public Object getPossibleStatesBoard() {
+        Connect4 game = games[next()];
+        return game.getPossibleStates(game.board, true);
+    }
+
+    @Benchmark
+    public Object getPossibleStatesBitboard() {
+        Connect4 game = games[next()];
+        return game.getPossibleStates(game.position, true);
+    }
+
+    //two plies, the AI's move and the human's answer
+    @Benchmark
+    public int minimaxBoard() {
+        Connect4 game = games[next()];
+        return game.minimax(game.board, 2, true);
+    }
+
+    //the same two plies with the search
+    @Benchmark
+    public int minimaxBitboard() {
+        return search.minimaxMove(positions[next()], 1);
+    }
+}
@@ -0,0 +1,80 @@
+package connect4;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+
+Full searches of every position of a group of the corpus (see connect4.Benchmark), 4 to 10 plies deep, on one thread with a
+64 MB table emptied before every run through the group, like Benchmark search. It reports the runs through the group per
+second and, as nodes, the positions searched per second:
+
+    java -jar benchmarks/target/benchmarks.jar SearchBenchmark -prof gc
+    java -jar benchmarks/target/benchmarks.jar SearchBenchmark -p depth=8 -p group=midgame
+
+*/
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    @Param({"opening", "midgame", "endgame"})
+    public String group;
+
+    @Param({"4", "5", "6", "7", "8", "9", "10"})
+    public int depth;
+
+    private Bitboard[] positions;
+    private TranspositionTable table;
+    private Search search;
+
+    //the positions the searches went through, reported per second
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        positions = connect4.Benchmark.group(Arrays.asList(connect4.Benchmark.GROUP_NAMES).indexOf(group));
+        table = new TranspositionTable(64);
+        search = new Search(false, table);
+    }
+
+    //every run starts from an empty table, what the last one stored would make it a lookup
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @Benchmark
+    public void search(Nodes counted, Blackhole blackhole) {
+        for (Bitboard position : positions) {
+            blackhole.consume(search.bestMove(position, depth));
+            counted.nodes += search.nodes;
+        }
+    }
+}
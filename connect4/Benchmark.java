@@ -0,0 +1,1074 @@
+package connect4;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/*
+
+Measurements for the AI, run from the command line:
+
+    java connect4.Benchmark methods
+    java connect4.Benchmark search [from depth] [to depth]
+    java connect4.Benchmark speedup [depth] [max threads]
+    java connect4.Benchmark solve [pieces] [positions]
+    java connect4.Benchmark mirror [depth]
+    java connect4.Benchmark lines [positions]
+    java connect4.Benchmark threats [depth] [positions]
+    java connect4.Benchmark cache <directory> [depth]
+    java connect4.Benchmark variants [depth]
+    java connect4.Benchmark ponder [think ms] [move ms] [positions]
+    java connect4.Benchmark maps [positions]
+    java connect4.Benchmark swar [positions] [depth]
+    java connect4.Benchmark memory [depth] [games] [kilobytes]
+
+methods times checkForWin, heuristic, getPossibleStates and minimax on the opening, midgame and endgame positions of the
+corpus, both through the String[][] methods in Connect4 and on the bitboard the search uses. Every method is run for a while
+to warm up the JIT and then timed in batches, and the time and the bytes allocated are printed per call.
+
+search runs full searches of every position in each group from one depth to another (4 to 10 by default) and prints the
+time, the positions searched per second and the bytes allocated.
+
+methods and search are a quick look without a build. The numbers to compare from one change to the next come from the same
+measurements run by JMH, in MethodsBenchmark and SearchBenchmark of the benchmarks module, with forks, warmup and -prof gc:
+
+    mvn -B package
+    java -jar benchmarks/target/benchmarks.jar -prof gc
+
+speedup searches every position of the corpus with 1, 2, 4, ... threads up to the maximum and prints the time, the positions
+searched and the speedup over one thread, and checks every thread count picks the same moves and that searches of a few
+milliseconds, which run out of time, still always pick a move.
+
+solve makes random positions with the given number of pieces (12 by default) and solves them exactly with Solver,
+printing the average and slowest time.
+
+mirror searches the openings of the corpus and every position after the first one and three moves (10 plies deep by
+default), then solves 20 random positions with 14 pieces, once with mirror images folded together and once without, and
+prints the positions searched and the time for both. The openings are searched with a new table for every position, which
+only folds mirror images inside one search, and with one table for all of them like a game or OpeningBook.generate, where a
+position can also find its mirror image from another search. With new tables the folded search has to pick the same
+moves. With one table it needn't, the table hands later searches deeper results than they asked for either way.
+
+lines checks LineScan against the board walks it replaced (LegacyLines) on random positions, 100000 by default, with any
+number of pieces and sometimes more than one four in a row. Its wins have to match the old check methods, and its counts a
+plain count of the open lines on the String[][] board. It also prints how often the old count methods disagree with a plain
+count of runs, which is their bounds quirks, and times the old walks against the scan.
+
+threats searches the corpus and random positions with 8 to 32 pieces (200 by default), 8 plies deep by default with a new
+table for each, once with the threat checks in the search and once without, and prints the positions searched, the leaves and
+the time for the corpus and for the random positions. The checks only leave out moves that lose, so both have to pick the same
+moves with the same scores.
+
+cache plays the mirror openings (see mirror) through an Engine with a PositionCache in the directory, 9 plies deep by default,
+closes the cache and opens it again, and plays them again. It prints the time and the moves that came from the cache for
+both runs, how long opening took and whether the moves matched. Run it twice and the first run finds the cache full already.
+
+variants searches the corpus 7 plies deep by default with Search on a Bitboard (without a table, like VariantSearch) and with
+VariantSearch on the standard Geometry, both with the board packed in a long and with the multi-word board, and checks all
+three pick the same moves with the same scores. Then it searches random positions on 8x7 (64 bits, one long), 9x8 and 7x6
+with five in a row, packed where they fit and multi-word, and prints the time and positions per second of each.
+
+ponder plays one random reply in random positions (20 by default) as if the opponent had thought for think ms (500 by
+default), once with the engine pondering in the meantime and once without, and searches the AI's answer in move ms (100 by
+default). It prints the average depth the answer reached both ways and the longest stopPondering() took. Then it does the
+same with a fixed depth of 9 and prints how long the answers took and how many were already pondered.
+
+maps stores random positions (1000000 by default) with a number for each in a HashMap<String, Integer> keyed by the cells
+of the String[][] board, and in a LongIntMap on the heap and off it keyed by canonicalKey(). It prints the memory per entry
+of each, checks all three find the same numbers and don't find positions that weren't stored, that every key gives its
+position back with Bitboard.fromKey and is the one Bitboard.canonicalKey(String[][]) makes, then times lookups with the key already made and with it made from a String[][] board.
+
+swar checks LineScan.scanSwar against scan on random positions (100000 by default) made like the ones lines uses, and the
+score of Evaluator.evaluate(Bitboard) against the evaluator's counts and the heuristic, then times scoring a leaf each way:
+the evaluator's counts (with the add and remove a leaf takes), scan and scanSwar. Then it searches the corpus and random
+positions 9 plies deep by default with swarLeaves off and on, checks both pick the same moves with the same scores, and prints
+the time of both.
+
+memory plays games (20 by default) against an opponent that searches 4 plies deep and plays a random move near the middle a
+quarter of the time, the AI searching 9 plies deep by default with a
+SearchMemory of its own table, 1024 kilobytes by default. Every position the AI moves in is also searched from scratch, with
+an empty table and no killers or history, and with the engine's table kept from the moves before but nothing else, like an
+engine without a memory. It prints the average positions searched for each move of the game all three ways, the totals and how
+many moves the other two picked differently (a table kept from earlier moves can give deeper scores than the depth asked for).
+
+The corpus is a fixed set of positions with the AI to move, written as the columns played from an empty board, so the
+numbers can be compared from one change to the next.
+
+*/
+
+public class Benchmark {
+    public static final String[] OPENINGS = {"3", "321", "32126", "5524514"};
+    public static final String[] MIDGAMES = {"456443663", "62332634141", "6233324344234", "425563344524403"};
+    public static final String[] ENDGAMES = {"55553554422643220", "5224461245426531123", "623434234336224431554",
+            "12545351141344223414612", "3211340614403341331552120"};
+    public static final String[] GROUP_NAMES = {"opening", "midgame", "endgame"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final long WARMUP_NANOS = 300000000L;
+    private static final long MEASURE_NANOS = 1000000000L;
+
+    //results are added in here so the JIT can't throw the work away
+    static volatile int sink;
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "methods";
+        if (mode.equals("methods")) {
+            methods();
+        } else if (mode.equals("search")) {
+            int from = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            int to = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+            search(from, to);
+        } else if (mode.equals("speedup")) {
+            int depth = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+            int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            speedup(depth, maxThreads);
+        } else if (mode.equals("solve")) {
+            int pieces = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+            int count = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+            solve(pieces, count);
+        } else if (mode.equals("mirror")) {
+            mirror(args.length > 1 ? Integer.parseInt(args[1]) : 10);
+        } else if (mode.equals("lines")) {
+            lines(args.length > 1 ? Integer.parseInt(args[1]) : 100000);
+        } else if (mode.equals("threats")) {
+            int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+            threats(depth, args.length > 2 ? Integer.parseInt(args[2]) : 200);
+        } else if (mode.equals("variants")) {
+            variants(args.length > 1 ? Integer.parseInt(args[1]) : 7);
+        } else if (mode.equals("ponder")) {
+            long thinkMs = args.length > 1 ? Long.parseLong(args[1]) : 500;
+            long moveMs = args.length > 2 ? Long.parseLong(args[2]) : 100;
+            ponder(thinkMs, moveMs, args.length > 3 ? Integer.parseInt(args[3]) : 20);
+        } else if (mode.equals("maps")) {
+            maps(args.length > 1 ? Integer.parseInt(args[1]) : 1000000);
+        } else if (mode.equals("swar")) {
+            int count = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+            swar(count, args.length > 2 ? Integer.parseInt(args[2]) : 9);
+        } else if (mode.equals("memory")) {
+            int depth = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+            int games = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+            memory(depth, games, args.length > 3 ? Integer.parseInt(args[3]) : 1024);
+        } else if (mode.equals("cache")) {
+            try {
+                cache(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 9);
+            } catch (IOException e) {
+                System.out.println("Couldn't use the position cache: " + e.getMessage());
+            }
+        } else {
+            System.out.println("Unknown benchmark " + mode);
+        }
+    }
+
+    //the positions of one group, 0 for openings, 1 for midgames and 2 for endgames
+    public static Bitboard[] group(int group) {
+        String[] moves = group == 0 ? OPENINGS : group == 1 ? MIDGAMES : ENDGAMES;
+        Bitboard[] positions = new Bitboard[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            positions[i] = Bitboard.fromMoves(moves[i]);
+        }
+        return positions;
+    }
+
+    //time the single methods on every group of the corpus
+    public static void methods() {
+        System.out.println("method                                    group       ns/op      B/op");
+        for (int g = 0; g < GROUP_NAMES.length; g++) {
+            Bitboard[] positions = group(g);
+            Connect4[] games = new Connect4[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                games[i] = new Connect4(positions[i]);
+            }
+            String name = GROUP_NAMES[g];
+            int n = positions.length;
+            int[] next = new int[1];
+
+            measure("checkForWin(String[][])", name, () -> {
+                Connect4 game = games[next[0]++ % n];
+                return game.checkForWin(true, game.board) ? 1 : 0;
+            });
+            measure("checkForWin(Bitboard)", name, () -> positions[next[0]++ % n].isWin(true) ? 1 : 0);
+            measure("heuristic(String[][])", name, () -> {
+                Connect4 game = games[next[0]++ % n];
+                return game.heuristic(game.board, true);
+            });
+            measure("heuristic(Bitboard)", name, () -> Search.heuristic(positions[next[0]++ % n], true));
+            measure("getPossibleStates(String[][])", name, () -> {
+                Connect4 game = games[next[0]++ % n];
+                return game.getPossibleStates(game.board, true).size();
+            });
+            measure("getPossibleStates(Bitboard)", name, () -> {
+                Connect4 game = games[next[0]++ % n];
+                return game.getPossibleStates(game.position, true).size();
+            });
+            measure("minimax(String[][]) depth 2", name, () -> {
+                Connect4 game = games[next[0]++ % n];
+                return game.minimax(game.board, 2, true);
+            });
+            Search search = new Search();
+            measure("Search.minimaxMove (same 2 plies)", name, () -> search.minimaxMove(positions[next[0]++ % n], 1));
+        }
+    }
+
+    //run op over and over, first to warm up and then timed, and print the time and allocation per call
+    public static void measure(String method, String group, IntSupplier op) {
+        int result = 0;
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 100; i++) {
+                result += op.getAsInt();
+            }
+        }
+        long calls = 0;
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long now = start;
+        while (now - start < MEASURE_NANOS) {
+            for (int i = 0; i < 100; i++) {
+                result += op.getAsInt();
+            }
+            calls += 100;
+            now = System.nanoTime();
+        }
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        sink += result;
+        System.out.printf("%-41s %-8s %10.1f %9d%n", method, group, (double) (now - start) / calls, allocated / calls);
+    }
+
+    //full searches of every group from one depth to another
+    public static void search(int from, int to) {
+        System.out.println("group     depth        ms    positions  positions/s      B/search");
+        for (int g = 0; g < GROUP_NAMES.length; g++) {
+            Bitboard[] positions = group(g);
+            //warm up on the shallowest depth first
+            searchAll(positions, from, 1, new long[3]);
+            for (int depth = from; depth <= to; depth++) {
+                long[] counts = new long[3];
+                searchAll(positions, depth, 1, counts);
+                System.out.printf("%-9s %5d %9d %12d %12.0f %13d%n", GROUP_NAMES[g], depth, counts[1] / 1000000, counts[0],
+                        counts[0] * 1e9 / counts[1], counts[2] / positions.length);
+            }
+        }
+    }
+
+    //solve random positions with a number of pieces and print how long they took
+    public static void solve(int pieces, int count) {
+        Random random = new Random(pieces);
+        Solver solver = new Solver();
+        long total = 0;
+        long slowest = 0;
+        String slowestMoves = "";
+        for (int i = 0; i < count; i++) {
+            String moves = randomGame(random, pieces);
+            Bitboard board = Bitboard.fromMoves(moves);
+            solver.reset();
+            long start = System.nanoTime();
+            int score = solver.solve(board);
+            long time = System.nanoTime() - start;
+            total += time;
+            if (time > slowest) {
+                slowest = time;
+                slowestMoves = moves;
+            }
+            sink += score;
+        }
+        System.out.printf("%d positions with %d pieces: average %.1f ms, slowest %.1f ms (%s)%n", count, pieces,
+                total / 1e6 / count, slowest / 1e6, slowestMoves);
+    }
+
+    //check LineScan against the old board walks and time both
+    public static void lines(int count) {
+        Random random = new Random(69);
+        Bitboard[] positions = new Bitboard[count];
+        String[][][] boards = new String[count][Bitboard.HEIGHT][Bitboard.WIDTH];
+        for (int i = 0; i < count; i++) {
+            //keep playing after a win, so some positions have several
+            Bitboard board = new Bitboard();
+            int pieces = random.nextInt(Bitboard.WIDTH * Bitboard.HEIGHT + 1);
+            while (board.moves < pieces) {
+                int column = random.nextInt(Bitboard.WIDTH);
+                if (!board.isFull(column)) {
+                    board.makeMove(column);
+                }
+            }
+            positions[i] = board;
+            board.toArray(boards[i]);
+        }
+
+        LineScan scan = new LineScan();
+        int winDifferences = 0;
+        int countDifferences = 0;
+        int quirks = 0;
+        for (int i = 0; i < count; i++) {
+            String[][] board = boards[i];
+            scan.scan(positions[i]);
+            for (boolean player : new boolean[] {true, false}) {
+                boolean won = LegacyLines.checkForHorizontal(player, board) || LegacyLines.checkForVertical(player, board)
+                        || LegacyLines.checkForDiagonal(player, board);
+                if (won != scan.isWin(player)) {
+                    winDifferences++;
+                }
+                for (int inARow = 2; inARow <= 3; inARow++) {
+                    if (scan.count(player, inARow) != openLines(board, player, inARow)) {
+                        countDifferences++;
+                    }
+                    int old = LegacyLines.countHorizontal(player, board, inARow)
+                            + LegacyLines.countVertical(player, board, inARow)
+                            + LegacyLines.countDiagonal(player, board, inARow);
+                    if (old != Bitboard.countInARow(positions[i].pieces(player), inARow)) {
+                        quirks++;
+                    }
+                }
+            }
+        }
+        System.out.println(count + " positions: " + winDifferences + " win flags differ from the old check methods, "
+                + countDifferences + " counts differ from counting open lines");
+        System.out.println("(the old count methods miss or skip runs on " + quirks + " of " + count * 4 + " counts)");
+
+        //what the heuristic used to do for one position: both players' wins, twos and threes with the old walks
+        int n = Math.min(count, 1024);
+        int[] next = new int[1];
+        System.out.println("method                                    group       ns/op      B/op");
+        measure("old checks and counts (String[][])", "lines", () -> {
+            String[][] board = boards[next[0]++ % n];
+            int total = 0;
+            for (boolean player : new boolean[] {true, false}) {
+                if (LegacyLines.checkForHorizontal(player, board) || LegacyLines.checkForVertical(player, board)
+                        || LegacyLines.checkForDiagonal(player, board)) {
+                    total++;
+                }
+                for (int inARow = 2; inARow <= 3; inARow++) {
+                    total += LegacyLines.countHorizontal(player, board, inARow)
+                            + LegacyLines.countVertical(player, board, inARow)
+                            + LegacyLines.countDiagonal(player, board, inARow);
+                }
+            }
+            return total;
+        });
+        measure("LineScan (String[][])", "lines", () -> scan.scan(new Bitboard(boards[next[0]++ % n])).twosO);
+        measure("LineScan (Bitboard)", "lines", () -> scan.scan(positions[next[0]++ % n]).twosO);
+    }
+
+    //the lines of four holding inARow of the player's pieces and none of the other player's, found by walking the
+    //String[][] board from every cell in every direction
+    private static int openLines(String[][] board, boolean player, int inARow) {
+        String mine = player ? "O" : "X";
+        String theirs = player ? "X" : "O";
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {-1, 1}};
+        int lines = 0;
+        for (int row = 0; row < Bitboard.HEIGHT; row++) {
+            for (int column = 0; column < Bitboard.WIDTH; column++) {
+                for (int[] direction : directions) {
+                    int lastRow = row + 3 * direction[0];
+                    int lastColumn = column + 3 * direction[1];
+                    if (lastRow < 0 || lastRow >= Bitboard.HEIGHT || lastColumn >= Bitboard.WIDTH) {
+                        continue;
+                    }
+                    int count = 0;
+                    boolean blocked = false;
+                    for (int k = 0; k < 4; k++) {
+                        String cell = board[row + k * direction[0]][column + k * direction[1]];
+                        if (cell.equals(mine)) {
+                            count++;
+                        } else if (cell.equals(theirs)) {
+                            blocked = true;
+                        }
+                    }
+                    if (!blocked && count == inARow) {
+                        lines++;
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    //the work saved by treating a position and its mirror image as one
+    public static void mirror(int depth) {
+        ArrayList<Bitboard> openings = new ArrayList<>(Arrays.asList(group(0)));
+        for (int first = 0; first < Bitboard.WIDTH; first++) {
+            openings.add(Bitboard.fromMoves("" + first));
+            for (int second = 0; second < Bitboard.WIDTH; second++) {
+                for (int third = 0; third < Bitboard.WIDTH; third++) {
+                    Bitboard board = Bitboard.fromMoves("" + first + second + third);
+                    if (!board.isWin(false)) {
+                        openings.add(board);
+                    }
+                }
+            }
+        }
+        Random random = new Random(14);
+        Bitboard[] solved = new Bitboard[20];
+        for (int i = 0; i < solved.length; i++) {
+            solved[i] = Bitboard.fromMoves(randomGame(random, 14));
+        }
+
+        //warm up the JIT on both settings first
+        mirrorRun(openings, depth - 2, solved, true, false, false);
+        mirrorRun(openings, depth - 2, solved, false, false, false);
+        System.out.println("                              positions         ms");
+        for (boolean sharedTable : new boolean[] {false, true}) {
+            int[] folded = mirrorRun(openings, depth, solved, true, sharedTable, true);
+            int[] unfolded = mirrorRun(openings, depth, solved, false, sharedTable, true);
+            if (!sharedTable && !Arrays.equals(folded, unfolded)) {
+                System.out.println("(the folded search picked different moves)");
+            }
+        }
+    }
+
+    //the standard board through VariantSearch against Search, and the variants packed and multi-word
+    public static void variants(int depth) {
+        String[] corpus = new String[OPENINGS.length + MIDGAMES.length + ENDGAMES.length];
+        int c = 0;
+        for (String[] group : new String[][] {OPENINGS, MIDGAMES, ENDGAMES}) {
+            for (String moves : group) {
+                corpus[c++] = moves;
+            }
+        }
+        //warm up the JIT first
+        for (int i = 0; i < 3; i++) {
+            variantRun(Geometry.STANDARD, corpus, depth - 1, 0, false);
+            variantRun(Geometry.STANDARD, corpus, depth - 1, 1, false);
+            variantRun(Geometry.STANDARD, corpus, depth - 1, 2, false);
+        }
+        System.out.println("board    representation    positions         ms   positions/s");
+        long[] search = variantRun(Geometry.STANDARD, corpus, depth, 0, true);
+        long[] packed = variantRun(Geometry.STANDARD, corpus, depth, 1, true);
+        long[] wide = variantRun(Geometry.STANDARD, corpus, depth, 2, true);
+        if (!Arrays.equals(search, packed) || !Arrays.equals(packed, wide)) {
+            System.out.println("(the searches picked different moves or scores)");
+        }
+
+        for (String variant : new String[] {"8x7", "9x8", "7x6x5"}) {
+            Geometry geometry = Geometry.parse(variant);
+            Random random = new Random(19);
+            String[] positions = new String[20];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = randomVariantGame(random, geometry, 4 + random.nextInt(12));
+            }
+            long[] first = variantRun(geometry, positions, depth - 1, geometry.fitsInLong() ? 1 : 2, true);
+            if (geometry.fitsInLong() && !Arrays.equals(first, variantRun(geometry, positions, depth - 1, 2, true))) {
+                System.out.println("(the packed and multi-word boards picked different moves or scores)");
+            }
+        }
+    }
+
+    //search the positions with Search on a Bitboard (how 0), or VariantSearch on a packed (1) or multi-word (2) board.
+    //Returns the moves and scores.
+    private static long[] variantRun(Geometry geometry, String[] positions, int depth, int how, boolean print) {
+        long[] picked = new long[positions.length];
+        long nodes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < positions.length; i++) {
+            int move;
+            int score;
+            if (how == 0) {
+                Search search = new Search();
+                search.useThreats = false;
+                move = search.bestMove(Bitboard.fromMoves(positions[i]), depth);
+                score = search.bestScore;
+                nodes += search.nodes;
+            } else {
+                GridBoard board = how == 1 ? new GridBoard.Packed(geometry) : new GridBoard.Wide(geometry);
+                for (int k = 0; k < positions[i].length(); k++) {
+                    board.play(Character.digit(positions[i].charAt(k), 36), board.sideToMove());
+                }
+                VariantSearch search = new VariantSearch(geometry);
+                move = search.bestMove(board, depth);
+                score = search.bestScore;
+                nodes += search.nodes;
+            }
+            picked[i] = (long) score << 8 | move & 0xFF;
+        }
+        long time = System.nanoTime() - start;
+        if (print) {
+            String name = how == 0 ? "Bitboard, Search" : how == 1 ? "one long" : "multi-word";
+            System.out.printf("%-8s %-16s %11d %10d %13.0f%n", geometry, name, nodes, time / 1000000, nodes * 1e9 / time);
+        }
+        return picked;
+    }
+
+    //random moves on a board of any size, never one that wins
+    private static String randomVariantGame(Random random, Geometry geometry, int pieces) {
+        while (true) {
+            GridBoard board = GridBoard.of(geometry);
+            StringBuilder moves = new StringBuilder();
+            for (int tries = 0; board.moves < pieces && tries < 1000; tries++) {
+                int column = (int) Math.round((geometry.width - 1) / 2.0 + random.nextGaussian() * 2);
+                if (column < 0 || column >= geometry.width || board.isFull(column)) {
+                    continue;
+                }
+                boolean player = board.sideToMove();
+                board.play(column, player);
+                if (board.wonWith(column)) {
+                    board.undo(column);
+                    continue;
+                }
+                moves.append(Character.forDigit(column, 36));
+            }
+            if (board.moves == pieces) {
+                return moves.toString();
+            }
+        }
+    }
+
+    //how much deeper or faster the AI answers when it pondered while the opponent thought
+    public static void ponder(long thinkMs, long moveMs, int count) {
+        Random random = new Random(23);
+        Position[] positions = new Position[count];
+        int[] replies = new int[count];
+        for (int i = 0; i < count; i++) {
+            do {
+                positions[i] = Position.fromMoves(randomGame(random, 2 * (2 + random.nextInt(8))));
+                do {
+                    replies[i] = random.nextInt(Bitboard.WIDTH);
+                } while (!positions[i].canPlay(replies[i]));
+            } while (positions[i].play(replies[i]).isGameOver());
+        }
+        Engine engine = new Engine(16, 1, null);
+        for (Limits limits : new Limits[] {Limits.time(moveMs).withBook(false), Limits.depth(9).withBook(false)}) {
+            long[] depths = new long[2];
+            long[] nanos = new long[2];
+            int hits = 0;
+            long longestStop = 0;
+            for (int i = 0; i < count; i++) {
+                for (int pondering = 0; pondering < 2; pondering++) {
+                    engine.clear();
+                    if (pondering == 1) {
+                        engine.ponder(positions[i], limits);
+                    }
+                    try {
+                        Thread.sleep(thinkMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    engine.stopPondering();
+                    longestStop = Math.max(longestStop, System.nanoTime() - start);
+                    SearchResult result = engine.bestMove(positions[i].play(replies[i]), limits);
+                    nanos[pondering] += System.nanoTime() - start;
+                    depths[pondering] += result.depth();
+                    if (result.source().equals(SearchResult.PONDER)) {
+                        hits++;
+                    }
+                }
+            }
+            if (limits.timeMs > 0) {
+                System.out.printf("%d ms a move after %d ms of thinking: depth %.2f without pondering, %.2f with%n", moveMs,
+                        thinkMs, (double) depths[0] / count, (double) depths[1] / count);
+            } else {
+                System.out.printf("depth 9 after %d ms of thinking: %.1f ms a move without pondering, %.1f ms with, %d of %d "
+                        + "already pondered%n", thinkMs, nanos[0] / 1e6 / count, nanos[1] / 1e6 / count, hits, count);
+            }
+            System.out.printf("longest stopPondering() %.2f ms%n", longestStop / 1e6);
+        }
+        engine.close();
+    }
+
+    //the time a PositionCache saves from one run to the next
+    public static void cache(Path directory, int depth) throws IOException {
+        ArrayList<Bitboard> openings = new ArrayList<>();
+        for (int first = 0; first < Bitboard.WIDTH; first++) {
+            for (int second = 0; second < Bitboard.WIDTH; second++) {
+                for (int third = 0; third < Bitboard.WIDTH; third++) {
+                    Bitboard board = Bitboard.fromMoves("" + first + second + third);
+                    if (!board.isWin(false)) {
+                        openings.add(board);
+                    }
+                }
+            }
+        }
+        Limits limits = Limits.depth(depth).withBook(false);
+        int[][] moves = new int[2][openings.size()];
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            PositionCache cache = PositionCache.open(directory, 1 << 20);
+            long opened = System.nanoTime() - start;
+            Engine engine = new Engine(16, 1, null, Weights.DEFAULT, cache, depth);
+            int cached = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < moves[run].length; i++) {
+                SearchResult result = engine.bestMove(Position.of(openings.get(i)), limits);
+                moves[run][i] = result.move();
+                if (result.source().equals(SearchResult.CACHE)) {
+                    cached++;
+                }
+            }
+            long played = System.nanoTime() - start;
+            start = System.nanoTime();
+            cache.close();
+            System.out.printf("run %d: opened %d entries in %.1f ms, %d moves in %d ms, %d from the cache, closed in %.1f ms%n",
+                    run + 1, cache.size() - (int) cache.stored.get(), opened / 1e6, openings.size(), played / 1000000,
+                    cached, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.println(Arrays.equals(moves[0], moves[1]) ? "same moves" : "(the moves differ between the runs)");
+    }
+
+    //search the openings and solve the positions, and print the work if asked to. Returns the moves picked.
+    private static int[] mirrorRun(ArrayList<Bitboard> openings, int depth, Bitboard[] solved, boolean fold,
+            boolean sharedTable, boolean print) {
+        int[] moves = new int[openings.size()];
+        long nodes = 0;
+        long start = System.nanoTime();
+        Search search = new Search(false, new TranspositionTable(16));
+        search.foldMirrors = fold;
+        for (int i = 0; i < moves.length; i++) {
+            if (!sharedTable) {
+                search.table.clear();
+            }
+            search.clearCounts();
+            moves[i] = search.bestMove(openings.get(i), depth);
+            nodes += search.nodes;
+        }
+        long searchTime = System.nanoTime() - start;
+        String name = (fold ? "folded" : "unfolded") + (sharedTable ? ", one table" : ", new tables");
+        if (print) {
+            System.out.printf("search %-21s %11d %10d%n", name, nodes, searchTime / 1000000);
+        }
+        if (sharedTable) {
+            return moves;
+        }
+
+        Solver solver = new Solver(16);
+        solver.foldMirrors = fold;
+        start = System.nanoTime();
+        for (Bitboard board : solved) {
+            solver.reset();
+            sink += solver.solve(board);
+        }
+        if (print) {
+            System.out.printf("solve  %-21s %11d %10d%n", fold ? "folded" : "unfolded", solver.nodes,
+                    (System.nanoTime() - start) / 1000000);
+        }
+        return moves;
+    }
+
+    //the work saved by scoring won and lost positions from their threats
+    public static void threats(int depth, int count) {
+        Random random = new Random(17);
+        Bitboard[] positions = new Bitboard[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = Bitboard.fromMoves(randomGame(random, 8 + random.nextInt(25)));
+        }
+        Bitboard[][] sets = {corpus(), positions};
+        String[] names = {"corpus", "random"};
+
+        //warm up the JIT on both settings first
+        threatsRun(sets[0], depth - 2, true, new long[3]);
+        threatsRun(sets[0], depth - 2, false, new long[3]);
+        System.out.println("set      threats      positions       leaves         ms");
+        for (int set = 0; set < sets.length; set++) {
+            long[] with = new long[3];
+            long[] without = new long[3];
+            long[] picked = threatsRun(sets[set], depth, true, with);
+            long[] unchanged = threatsRun(sets[set], depth, false, without);
+            System.out.printf("%-8s %-8s %12d %12d %10d%n", names[set], "on", with[0], with[1], with[2] / 1000000);
+            System.out.printf("%-8s %-8s %12d %12d %10d%n", names[set], "off", without[0], without[1], without[2] / 1000000);
+            System.out.printf("%-8s %.1f%% fewer positions%n", names[set], 100.0 * (without[0] - with[0]) / without[0]);
+            if (!Arrays.equals(picked, unchanged)) {
+                System.out.println("(the threat checks changed a move or a score)");
+            }
+        }
+    }
+
+    //search every position with a new table, adding the positions, leaves and time to counts. Returns the moves and scores.
+    private static long[] threatsRun(Bitboard[] positions, int depth, boolean useThreats, long[] counts) {
+        long[] picked = new long[positions.length];
+        Search search = new Search(false, new TranspositionTable(16));
+        search.useThreats = useThreats;
+        long start = System.nanoTime();
+        for (int i = 0; i < positions.length; i++) {
+            search.table.clear();
+            search.clearCounts();
+            int move = search.bestMove(positions[i], depth);
+            picked[i] = (long) search.bestScore << 8 | move & 0xFF;
+            counts[0] += search.nodes;
+            counts[1] += search.leaves;
+        }
+        counts[2] += System.nanoTime() - start;
+        return picked;
+    }
+
+    //check the branchless line counts against the line by line ones, and time scoring leaves both ways
+    public static void swar(int count, int depth) {
+        Random random = new Random(23);
+        Bitboard[] positions = new Bitboard[count];
+        for (int i = 0; i < count; i++) {
+            //keep playing after a win, so some positions have several
+            Bitboard board = new Bitboard();
+            int pieces = random.nextInt(Bitboard.WIDTH * Bitboard.HEIGHT + 1);
+            while (board.moves < pieces) {
+                int column = random.nextInt(Bitboard.WIDTH);
+                if (!board.isFull(column)) {
+                    board.makeMove(column);
+                }
+            }
+            positions[i] = board;
+        }
+
+        LineScan scan = new LineScan();
+        LineScan swar = new LineScan();
+        Evaluator evaluator = new Evaluator();
+        int scanDifferences = 0;
+        int scoreDifferences = 0;
+        for (Bitboard board : positions) {
+            scan.scan(board);
+            swar.scanSwar(board);
+            if (scan.winO != swar.winO || scan.winX != swar.winX || scan.twosO != swar.twosO || scan.threesO != swar.threesO
+                    || scan.twosX != swar.twosX || scan.threesX != swar.threesX) {
+                scanDifferences++;
+            }
+            evaluator.reset(board);
+            int score = evaluator.evaluate(board);
+            //the heuristic checks the side it scores for first, so it only matches when at most one player has won
+            if (score != evaluator.evaluate() || (!(scan.winO && scan.winX) && score != Search.heuristic(board, true))) {
+                scoreDifferences++;
+            }
+        }
+        System.out.println(count + " positions: " + scanDifferences + " scans and " + scoreDifferences
+                + " scores differ from the line by line ones");
+
+        int n = Math.min(count, 1024);
+        Bitboard[] leaves = Arrays.copyOf(positions, n);
+        int[] next = new int[1];
+        System.out.println("method                                    group       ns/op      B/op");
+        Evaluator[] evaluators = new Evaluator[n];
+        int[] lastBits = new int[n];
+        boolean[] lastPlayers = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            evaluators[i] = new Evaluator();
+            evaluators[i].reset(leaves[i]);
+            //a leaf's last piece, the top one of the first column that has one
+            long pieces = leaves[i].o | leaves[i].x;
+            for (int column = 0; column < Bitboard.WIDTH; column++) {
+                if (leaves[i].heights[column] > 0) {
+                    lastBits[i] = column * Bitboard.H1 + leaves[i].heights[column] - 1;
+                    break;
+                }
+            }
+            lastPlayers[i] = pieces != 0 && (leaves[i].o >>> lastBits[i] & 1) != 0;
+        }
+        measure("Evaluator counts (remove, add, evaluate)", "leaves", () -> {
+            int i = next[0]++ % n;
+            if ((leaves[i].o | leaves[i].x) == 0) {
+                return evaluators[i].evaluate();
+            }
+            evaluators[i].remove(lastBits[i], lastPlayers[i]);
+            evaluators[i].add(lastBits[i], lastPlayers[i]);
+            return evaluators[i].evaluate();
+        });
+        measure("Evaluator counts (evaluate only)", "leaves", () -> evaluators[next[0]++ % n].evaluate());
+        measure("LineScan.scan and score", "leaves", () -> Search.heuristic(leaves[next[0]++ % n], true));
+        measure("LineScan.scanSwar", "leaves", () -> swar.scanSwar(leaves[next[0]++ % n]).twosO);
+        measure("Evaluator.evaluate(Bitboard) (scanSwar)", "leaves", () -> evaluator.evaluate(leaves[next[0]++ % n]));
+
+        Bitboard[] random200 = new Bitboard[200];
+        for (int i = 0; i < random200.length; i++) {
+            random200[i] = Bitboard.fromMoves(randomGame(random, 8 + random.nextInt(25)));
+        }
+        Bitboard[][] sets = {corpus(), random200};
+        String[] names = {"corpus", "random"};
+        //warm up the JIT on both settings first
+        swarRun(sets[0], depth - 2, true, new long[2]);
+        swarRun(sets[0], depth - 2, false, new long[2]);
+        System.out.println("set      swar         positions         ms");
+        for (int set = 0; set < sets.length; set++) {
+            long[] off = new long[2];
+            long[] on = new long[2];
+            long[] counted = swarRun(sets[set], depth, false, off);
+            long[] scanned = swarRun(sets[set], depth, true, on);
+            System.out.printf("%-8s %-8s %12d %10d%n", names[set], "off", off[0], off[1] / 1000000);
+            System.out.printf("%-8s %-8s %12d %10d%n", names[set], "on", on[0], on[1] / 1000000);
+            if (!Arrays.equals(counted, scanned)) {
+                System.out.println("(scoring leaves with scanSwar changed a move or a score)");
+            }
+        }
+    }
+
+    //search every position with a new table, adding the positions and time to counts. Returns the moves and scores.
+    private static long[] swarRun(Bitboard[] positions, int depth, boolean swarLeaves, long[] counts) {
+        long[] picked = new long[positions.length];
+        Search search = new Search(false, new TranspositionTable(16));
+        search.swarLeaves = swarLeaves;
+        long start = System.nanoTime();
+        for (int i = 0; i < positions.length; i++) {
+            search.table.clear();
+            search.clearCounts();
+            int move = search.bestMove(positions[i], depth);
+            picked[i] = (long) search.bestScore << 8 | move & 0xFF;
+            counts[0] += search.nodes;
+        }
+        counts[1] += System.nanoTime() - start;
+        return picked;
+    }
+
+    //the positions searched per move of a game with a SearchMemory, against starting every move over and keeping only the table
+    public static void memory(int depth, int games, int kilobytes) {
+        Random random = new Random(24);
+        Limits limits = Limits.depth(depth).withBook(false);
+        Engine fresh = new Engine(16, 1, null);
+        Engine kept = new Engine(16, 1, null);
+        Engine remembering = new Engine(16, 1, null);
+        Engine opponent = new Engine(1, 1, null);
+        Limits opponentLimits = Limits.depth(4).withBook(false);
+        int moves = Bitboard.WIDTH * Bitboard.HEIGHT / 2;
+        long[][] nodes = new long[3][moves];
+        int[] counts = new int[moves];
+        int[] different = new int[2];
+        long bytes = 0;
+        for (int game = 0; game < games; game++) {
+            kept.clear();
+            SearchMemory memory = new SearchMemory(kilobytes);
+            bytes = memory.bytes();
+            Position position = Position.EMPTY;
+            int move = 0;
+            while (!position.isGameOver()) {
+                if (!position.sideToMove()) {
+                    int column = random.nextInt(4) == 0 ? (int) Math.round(3 + random.nextGaussian() * 2)
+                            : opponent.bestMove(position, opponentLimits).move();
+                    if (position.canPlay(column)) {
+                        position = position.play(column);
+                    }
+                    continue;
+                }
+                fresh.clear();
+                SearchResult scratch = fresh.bestMove(position, limits);
+                SearchResult table = kept.bestMove(position, limits);
+                SearchResult remembered = remembering.bestMove(position, limits, memory);
+                nodes[0][move] += scratch.nodes();
+                nodes[1][move] += table.nodes();
+                nodes[2][move] += remembered.nodes();
+                counts[move]++;
+                different[0] += scratch.move() != remembered.move() ? 1 : 0;
+                different[1] += table.move() != remembered.move() ? 1 : 0;
+                position = position.play(remembered.move());
+                move++;
+            }
+        }
+        System.out.println("AI move    games    from scratch    table kept    SearchMemory");
+        long[] totals = new long[3];
+        for (int move = 0; move < moves && counts[move] > 0; move++) {
+            System.out.printf("%7d %8d %15d %13d %15d%n", move + 1, counts[move], nodes[0][move] / counts[move],
+                    nodes[1][move] / counts[move], nodes[2][move] / counts[move]);
+            for (int i = 0; i < 3; i++) {
+                totals[i] += nodes[i][move];
+            }
+        }
+        System.out.printf("total            %15d %13d %15d%n", totals[0], totals[1], totals[2]);
+        System.out.printf("SearchMemory searched %.1f%% of the positions searched from scratch and %.1f%% of the ones searched"
+                + " with the table kept%n", 100.0 * totals[2] / totals[0], 100.0 * totals[2] / totals[1]);
+        System.out.println("moves picked differently: " + different[0] + " from scratch, " + different[1] + " with the table kept");
+        System.out.println("memory per game: " + bytes / 1024 + " KB");
+    }
+
+    //the memory and lookup time of LongIntMap against a HashMap keyed by the board's cells
+    public static void maps(int count) {
+        Random random = new Random(22);
+        HashSet<Long> seen = new HashSet<>();
+        long[] keys = new long[count];
+        String[][][] boards = new String[count][Bitboard.HEIGHT][Bitboard.WIDTH];
+        for (int i = 0; i < count; ) {
+            Bitboard board = Bitboard.fromMoves(randomGame(random, 4 + random.nextInt(30)));
+            if (seen.add(board.canonicalKey())) {
+                keys[i] = board.canonicalKey();
+                board.toArray(boards[i++]);
+            }
+        }
+        //positions that weren't stored, for the misses
+        long[] missing = new long[count];
+        String[] missingCells = new String[count];
+        String[][] cells = new String[Bitboard.HEIGHT][Bitboard.WIDTH];
+        for (int i = 0; i < count; ) {
+            Bitboard board = Bitboard.fromMoves(randomGame(random, 4 + random.nextInt(30)));
+            if (!seen.contains(board.canonicalKey())) {
+                missing[i] = board.canonicalKey();
+                board.toArray(cells);
+                missingCells[i++] = cells(cells);
+            }
+        }
+        seen = null;
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = cells(boards[i]);
+        }
+        long before = usedHeap();
+        HashMap<String, Integer> hashMap = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            hashMap.put(cells(boards[i]), i);
+        }
+        long hashMapBytes = usedHeap() - before;
+        before = usedHeap();
+        LongIntMap heap = LongIntMap.of(16, false);
+        for (int i = 0; i < count; i++) {
+            heap.put(keys[i], i);
+        }
+        long heapBytes = usedHeap() - before;
+        long directBefore = directMemory();
+        LongIntMap direct = LongIntMap.of(16, true);
+        for (int i = 0; i < count; i++) {
+            direct.put(keys[i], i);
+        }
+        usedHeap();
+        long directBytes = directMemory() - directBefore;
+        System.out.println("map                                   entries   B/entry");
+        System.out.printf("%-36s %9d %9.1f%n", "HashMap<String, Integer>", hashMap.size(), (double) hashMapBytes / count);
+        System.out.printf("%-36s %9d %9.1f%n", "LongIntMap on the heap", heap.size(), (double) heapBytes / count);
+        System.out.printf("%-36s %9d %9.1f%n", "LongIntMap off the heap", direct.size(), (double) directBytes / count);
+
+        int differences = 0;
+        for (int i = 0; i < count; i++) {
+            int value = hashMap.get(strings[i]);
+            if (heap.get(keys[i], -1) != value || direct.get(keys[i], -1) != value
+                    || Bitboard.fromKey(keys[i]).canonicalKey() != keys[i] || Bitboard.canonicalKey(boards[i]) != keys[i]) {
+                differences++;
+            }
+            if (hashMap.containsKey(missingCells[i]) || heap.containsKey(missing[i]) || direct.containsKey(missing[i])) {
+                differences++;
+            }
+        }
+        System.out.println(differences + " differences between the maps");
+
+        int[] next = new int[1];
+        System.out.println("method                                    group       ns/op      B/op");
+        measure("HashMap<String, Integer>.get", "maps", () -> hashMap.get(strings[next[0]++ % count]));
+        measure("LongIntMap.get on the heap", "maps", () -> heap.get(keys[next[0]++ % count], -1));
+        measure("LongIntMap.get off the heap", "maps", () -> direct.get(keys[next[0]++ % count], -1));
+        measure("HashMap<String, Integer>.get (String[][])", "maps", () -> hashMap.get(cells(boards[next[0]++ % count])));
+        measure("LongIntMap.get on the heap (String[][])", "maps",
+                () -> heap.get(Bitboard.canonicalKey(boards[next[0]++ % count]), -1));
+    }
+
+    //the cells of a String[][] board in one string, the key a cache of boards would have without a bitboard
+    private static String cells(String[][] board) {
+        StringBuilder cells = new StringBuilder(Bitboard.WIDTH * Bitboard.HEIGHT);
+        for (String[] row : board) {
+            for (String cell : row) {
+                cells.append(cell);
+            }
+        }
+        return cells.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    //random moves from an empty board, never one that wins, so the game isn't over. Mostly near the middle like real games.
+    public static String randomGame(Random random, int pieces) {
+        while (true) {
+            Bitboard board = new Bitboard();
+            StringBuilder moves = new StringBuilder();
+            for (int tries = 0; board.moves < pieces && tries < 1000; tries++) {
+                int column = (int) Math.round(3 + random.nextGaussian() * 2);
+                if (column < 0 || column >= Bitboard.WIDTH || board.isFull(column)) {
+                    continue;
+                }
+                boolean player = board.sideToMove();
+                board.play(column, player);
+                if (board.isWin(player)) {
+                    board.undoMove(column);
+                    continue;
+                }
+                moves.append(column);
+            }
+            if (board.moves == pieces) {
+                return moves.toString();
+            }
+        }
+    }
+
+    //every position in the corpus
+    public static Bitboard[] corpus() {
+        String[][] groups = {OPENINGS, MIDGAMES, ENDGAMES};
+        int count = OPENINGS.length + MIDGAMES.length + ENDGAMES.length;
+        Bitboard[] positions = new Bitboard[count];
+        int i = 0;
+        for (String[] group : groups) {
+            for (String moves : group) {
+                positions[i++] = Bitboard.fromMoves(moves);
+            }
+        }
+        return positions;
+    }
+
+    //search the corpus with more and more threads and compare the time with one thread. The first run only warms up the JIT.
+    public static void speedup(int depth, int maxThreads) {
+        Bitboard[] positions = corpus();
+        searchAll(positions, depth, 1, new long[3]);
+        int[] singleMoves = null;
+        long singleTime = 0;
+        System.out.println("threads      ms    positions  speedup");
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            long[] counts = new long[3];
+            int[] moves = searchAll(positions, depth, threads, counts);
+            if (singleMoves == null) {
+                singleMoves = moves;
+                singleTime = counts[1];
+            }
+            String same = Arrays.equals(moves, singleMoves) ? "" : "  (moves differ from 1 thread)";
+            int missed = timedMisses(positions, threads);
+            if (missed > 0) {
+                same += "  (" + missed + " timed searches found no move)";
+            }
+            System.out.printf("%7d %7d %12d %8.2f%s%n", threads, counts[1] / 1000000, counts[0],
+                    (double) singleTime / counts[1], same);
+            if (threads >= maxThreads) {
+                break;
+            }
+        }
+    }
+
+    //search every position for 3 ms with one search, so timed out searches are followed by more, and return how many of
+    //them didn't pick a move. A worker that timed out before must not make a later search give up.
+    private static int timedMisses(Bitboard[] positions, int threads) {
+        Search search = new Search(false, new TranspositionTable(16), threads);
+        int missed = 0;
+        for (Bitboard position : positions) {
+            if (search.bestMoveInTime(position, 3, Limits.MAX_DEPTH) < 0 && !position.isFull()) {
+                missed++;
+            }
+        }
+        search.shutdown();
+        return missed;
+    }
+
+    //pick a move for every position with a new search and table. counts gets the positions searched, the time in ns and
+    //the bytes the searches allocated.
+    private static int[] searchAll(Bitboard[] positions, int depth, int threads, long[] counts) {
+        Search search = new Search(false, new TranspositionTable(64), threads);
+        int[] moves = new int[positions.length];
+        long start = System.nanoTime();
+        for (int i = 0; i < positions.length; i++) {
+            search.clearCounts();
+            moves[i] = search.bestMove(positions[i], depth);
+            counts[0] += search.nodes;
+            counts[2] += search.allocatedBytes;
+        }
+        counts[1] = System.nanoTime() - start;
+        search.shutdown();
+        return moves;
+    }
+}
@@ -0,0 +1,342 @@
+package connect4;
+
+import java.util.Random;
+
+/*
+
+A compact version of the Connect 4 board for the AI's search. Each player gets one 64-bit mask and every column takes 7 bits,
+6 for the playable rows and a spare top bit that is always empty. Bit (column * 7 + row) is a cell, with row 0 at the bottom.
+The empty top bit means shifting a mask by 1 (vertical), 7 (horizontal), 6 or 8 (the diagonals) can never wrap a line of
+pieces into the next column, so a whole direction can be checked with a couple of shifts and ands instead of loops.
+"O" (player == true) is the AI and "X" (player == false) is the human, the same as the String[][] board in Connect4.
+
+The position also keeps a Zobrist hash, a random number for every player and cell xor'd together for the pieces on the board.
+Placing a piece only xors in one more number, so the search gets the hash of every position it visits for free.
+
+The board looks the same in a mirror, so a position and its mirror image (every column swapped with column 6 - column) have
+the same score and mirrored best moves. mirrorHash is the hash the mirror image would have, kept up the same way, so the
+search and the solver can store both under whichever hash is lower and only work each one out once.
+
+*/
+
+public class Bitboard {
+    public static final int WIDTH = 7;
+    public static final int HEIGHT = 6;
+    public static final int H1 = HEIGHT + 1;
+
+    //bit 0 of every column, and every playable cell of the board
+    public static final long BOTTOM = bottomMask();
+    public static final long BOARD = BOTTOM * ((1L << HEIGHT) - 1);
+
+    //masks used by countMiddle, the bottom centre cell, the rest of the bottom centre and the two rows above
+    private static final long MIDDLE_50 = cell(3, 0);
+    private static final long MIDDLE_30 = cell(2, 0) | cell(4, 0);
+    private static final long MIDDLE_5 = cell(2, 1) | cell(3, 1) | cell(4, 1);
+    private static final long MIDDLE_1 = cell(2, 2) | cell(3, 2) | cell(4, 2);
+
+    //a random number for every cell for "X" followed by every cell for "O". The seed is fixed so hashes are the same every run.
+    private static final long[] ZOBRIST = zobristKeys();
+
+    long o;
+    long x;
+    long hash;
+    long mirrorHash;
+    int[] heights = new int[WIDTH];
+    int moves;
+
+    public Bitboard() {
+    }
+
+    //copy another position
+    public Bitboard(Bitboard other) {
+        o = other.o;
+        x = other.x;
+        heights = other.heights.clone();
+        moves = other.moves;
+        hash = other.hash;
+        mirrorHash = other.mirrorHash;
+    }
+
+    //make this position a copy of another one without allocating anything
+    public void copyFrom(Bitboard other) {
+        o = other.o;
+        x = other.x;
+        System.arraycopy(other.heights, 0, heights, 0, WIDTH);
+        moves = other.moves;
+        hash = other.hash;
+        mirrorHash = other.mirrorHash;
+    }
+
+    //build a bitboard from the String[][] board used for printing and input. Row 0 of the array is the top of the board.
+    public Bitboard(String[][] board) {
+        for (int i = board.length - 1; i >= 0; i--) {
+            for (int j = 0; j < WIDTH; j++) {
+                if (board[i][j].equals("O")) {
+                    play(j, true);
+                } else if (board[i][j].equals("X")) {
+                    play(j, false);
+                }
+            }
+        }
+    }
+
+    //build a bitboard from the AI's and the human's pieces. The pieces have to be stacked from the bottom of each column.
+    public Bitboard(long o, long x) {
+        for (int column = 0; column < WIDTH; column++) {
+            for (int row = 0; row < HEIGHT; row++) {
+                long bit = cell(column, row);
+                if ((o & bit) != 0) {
+                    play(column, true);
+                } else if ((x & bit) != 0) {
+                    play(column, false);
+                } else {
+                    break;
+                }
+            }
+        }
+    }
+
+    //build a position from the columns played so far, e.g. "3342". The human goes first.
+    public static Bitboard fromMoves(String moves) {
+        Bitboard board = new Bitboard();
+        for (int i = 0; i < moves.length(); i++) {
+            int column = moves.charAt(i) - '0';
+            if (column < 0 || column >= WIDTH || board.isFull(column)) {
+                throw new IllegalArgumentException("Can't play column " + moves.charAt(i) + " in " + moves);
+            }
+            board.makeMove(column);
+        }
+        return board;
+    }
+
+    //the bit of a cell
+    public static long cell(int column, int row) {
+        return 1L << (column * H1 + row);
+    }
+
+    //returns true if the column can't take another piece
+    public boolean isFull(int column) {
+        return heights[column] == HEIGHT;
+    }
+
+    //returns true if every column is full
+    public boolean isFull() {
+        return moves == WIDTH * HEIGHT;
+    }
+
+    //drop a piece for the player in the column. The caller has to make sure the column isn't full.
+    public void play(int column, boolean player) {
+        int bit = column * H1 + heights[column];
+        int mirrorBit = (WIDTH - 1 - column) * H1 + heights[column];
+        long move = 1L << bit;
+        if (player) {
+            o |= move;
+            hash ^= ZOBRIST[WIDTH * H1 + bit];
+            mirrorHash ^= ZOBRIST[WIDTH * H1 + mirrorBit];
+        } else {
+            x |= move;
+            hash ^= ZOBRIST[bit];
+            mirrorHash ^= ZOBRIST[mirrorBit];
+        }
+        heights[column]++;
+        moves++;
+    }
+
+    //the player whose turn it is. The human ("X") always goes first, so it's the AI's turn after an odd number of moves.
+    public boolean sideToMove() {
+        return (moves & 1) == 1;
+    }
+
+    //play a piece for whoever's turn it is
+    public void makeMove(int column) {
+        play(column, sideToMove());
+    }
+
+    //take back the top piece of a column. The search plays and takes back moves on one position instead of copying it for
+    //every child.
+    public void undoMove(int column) {
+        heights[column]--;
+        moves--;
+        int bit = column * H1 + heights[column];
+        int mirrorBit = (WIDTH - 1 - column) * H1 + heights[column];
+        long move = 1L << bit;
+        if ((o & move) != 0) {
+            o &= ~move;
+            hash ^= ZOBRIST[WIDTH * H1 + bit];
+            mirrorHash ^= ZOBRIST[WIDTH * H1 + mirrorBit];
+        } else {
+            x &= ~move;
+            hash ^= ZOBRIST[bit];
+            mirrorHash ^= ZOBRIST[mirrorBit];
+        }
+    }
+
+    //a number that is different for every position, unlike the hash which can collide. It fits in 49 bits. Within a column,
+    //the filled cells plus the AI's pieces have a different sum for every height and every mix of pieces.
+    public long key() {
+        return o + (o | x);
+    }
+
+    //the lower of the key and its mirror image's, the same for a position and its mirror image. Caches that don't need the
+    //move the other way round can keep one entry for both under it.
+    public long canonicalKey() {
+        long key = key();
+        return Math.min(key, mirror(key));
+    }
+
+    //canonicalKey() of a String[][] board, straight from its cells without building the bitboard
+    public static long canonicalKey(String[][] board) {
+        long o = 0;
+        long mask = 0;
+        for (int i = 0; i < HEIGHT; i++) {
+            for (int j = 0; j < WIDTH; j++) {
+                String cell = board[i][j];
+                if (cell.equals("O")) {
+                    o |= cell(j, HEIGHT - 1 - i);
+                    mask |= cell(j, HEIGHT - 1 - i);
+                } else if (cell.equals("X")) {
+                    mask |= cell(j, HEIGHT - 1 - i);
+                }
+            }
+        }
+        long key = o + mask;
+        return Math.min(key, mirror(key));
+    }
+
+    //the position a key was made from. A column of height h holds 2^h - 1 plus the AI's pieces, between 2^h - 1 and
+    //2^(h+1) - 2, so the height is the top bit of the column plus one.
+    public static Bitboard fromKey(long key) {
+        if (key < 0 || key >>> (WIDTH * H1) != 0) {
+            throw new IllegalArgumentException("Not a position key: " + key);
+        }
+        long mask = 0;
+        for (int column = 0; column < WIDTH; column++) {
+            long value = key >>> (column * H1) & ((1L << H1) - 1);
+            int height = 63 - Long.numberOfLeadingZeros(value + 1);
+            if (height > HEIGHT) {
+                throw new IllegalArgumentException("Not a position key: " + key);
+            }
+            mask |= ((1L << height) - 1) << (column * H1);
+        }
+        long o = key - mask;
+        return new Bitboard(o, mask & ~o);
+    }
+
+    //the columns of a mask in the opposite order
+    public static long mirror(long mask) {
+        long mirrored = 0;
+        for (int column = 0; column < WIDTH; column++) {
+            mirrored |= (mask >>> (column * H1) & ((1L << H1) - 1)) << ((WIDTH - 1 - column) * H1);
+        }
+        return mirrored;
+    }
+
+    //returns true if the position is its own mirror image. The hashes only match by chance otherwise, so they're compared
+    //first and the pieces only when they do.
+    public boolean isSymmetric() {
+        return hash == mirrorHash && o == mirror(o) && x == mirror(x);
+    }
+
+    //returns true if the player has four in a row anywhere on the board
+    public boolean isWin(boolean player) {
+        return hasFour(player ? o : x);
+    }
+
+    //returns the pieces of a player
+    public long pieces(boolean player) {
+        return player ? o : x;
+    }
+
+    //returns what is in a cell as the String[][] board would show it
+    public String get(int column, int row) {
+        long bit = cell(column, row);
+        if ((o & bit) != 0) {
+            return "O";
+        } else if ((x & bit) != 0) {
+            return "X";
+        }
+        return " ";
+    }
+
+    //write the position into a String[][] board the same size as Connect4's
+    public void toArray(String[][] board) {
+        for (int i = 0; i < HEIGHT; i++) {
+            for (int j = 0; j < WIDTH; j++) {
+                board[i][j] = get(j, HEIGHT - 1 - i);
+            }
+        }
+    }
+
+    //check every direction for four in a row. Shifting by the direction and anding leaves a bit wherever two pieces
+    //touch, doing it again with twice the shift leaves a bit wherever four touch.
+    public static boolean hasFour(long m) {
+        long pairs = m & (m >>> H1);
+        if ((pairs & (pairs >>> (2 * H1))) != 0) {
+            return true;
+        }
+        pairs = m & (m >>> (H1 - 1));
+        if ((pairs & (pairs >>> (2 * (H1 - 1)))) != 0) {
+            return true;
+        }
+        pairs = m & (m >>> (H1 + 1));
+        if ((pairs & (pairs >>> (2 * (H1 + 1)))) != 0) {
+            return true;
+        }
+        pairs = m & (m >>> 1);
+        return (pairs & (pairs >>> 2)) != 0;
+    }
+
+    //the empty cells where one more piece would give the player four in a row, whether or not they can be played yet.
+    //For every direction it looks for three pieces on one side of a cell, or two on one side and one on the other.
+    public static long winningCells(long pieces, long mask) {
+        //vertical, only three underneath can make four
+        long cells = (pieces << 1) & (pieces << 2) & (pieces << 3);
+        for (int shift = H1 - 1; shift <= H1 + 1; shift++) {
+            long pair = (pieces << shift) & (pieces << (2 * shift));
+            cells |= pair & (pieces << (3 * shift));
+            cells |= pair & (pieces >>> shift);
+            pair = (pieces >>> shift) & (pieces >>> (2 * shift));
+            cells |= pair & (pieces << shift);
+            cells |= pair & (pieces >>> (3 * shift));
+        }
+        return cells & (BOARD ^ mask);
+    }
+
+    //count the runs of inARow pieces in every direction. Overlapping runs are each counted, so three in a row is also
+    //two runs of two.
+    public static int countInARow(long m, int inARow) {
+        return countRuns(m, H1, inARow) + countRuns(m, 1, inARow)
+                + countRuns(m, H1 - 1, inARow) + countRuns(m, H1 + 1, inARow);
+    }
+
+    private static int countRuns(long m, int shift, int inARow) {
+        long runs = m;
+        for (int k = 1; k < inARow; k++) {
+            runs &= m >>> (k * shift);
+        }
+        return Long.bitCount(runs);
+    }
+
+    //the bonus countMiddle gives for AI pieces at the bottom of the middle three columns
+    public int countMiddle() {
+        return Long.bitCount(o & MIDDLE_50) * 50 + Long.bitCount(o & MIDDLE_30) * 30
+                + Long.bitCount(o & MIDDLE_5) * 5 + Long.bitCount(o & MIDDLE_1);
+    }
+
+    private static long[] zobristKeys() {
+        Random random = new Random(0x5EED_C0DEL);
+        long[] keys = new long[2 * WIDTH * H1];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    private static long bottomMask() {
+        long mask = 0;
+        for (int column = 0; column < WIDTH; column++) {
+            mask |= 1L << (column * H1);
+        }
+        return mask;
+    }
+}
@@ -1,6 +1,11 @@
+package connect4;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Scanner;
+import javax.management.JMException;
 
 /*
 
@@ -15,15 +20,64 @@ choose a move at the beginning of the game.
 */
 
 public class Connect4 {
-    String[][] board = new String[6][7];
+    String[][] board = new String[Bitboard.HEIGHT][Bitboard.WIDTH];
+    Bitboard position = new Bitboard();
     boolean player = false;
+    //the AI. Its transposition table is kept for the whole game, and its size in megabytes can be set with -Dconnect4.ttMB.
+    //-Dconnect4.threads splits the search over more than one thread and -Dconnect4.book=<file> plays the AI's first moves
+    //from an opening book made by OpeningBook. -Dconnect4.cache=<directory> keeps every search at least
+    //-Dconnect4.cacheDepth plies deep (8 by default) in a PositionCache there, so the next game can play them without searching.
+    PositionCache cache = loadCache(System.getProperty("connect4.cache"));
+    Engine engine = new Engine(Integer.getInteger("connect4.ttMB", 16), Integer.getInteger("connect4.threads", 1),
+            loadBook(System.getProperty("connect4.book")), Weights.DEFAULT, cache, Integer.getInteger("connect4.cacheDepth", 8));
+    //what the AI's searches keep from one move of the game to the next, with the engine's table (see SearchMemory)
+    SearchMemory memory = new SearchMemory(0);
+    //-Dconnect4.metricsLog=true prints a line of key=value metrics after every AI move for other programs to read. The
+    //totals can be watched over JMX as well, under connect4:type=Engine,name="console".
+    boolean metricsLog = Boolean.getBoolean("connect4.metricsLog");
+    //run plain minimax after every AI move as well so the work alpha-beta saved can be printed
+    boolean compareSearch = Boolean.getBoolean("connect4.compare");
+    //with -Dconnect4.timeMs the AI gets that many milliseconds per move and the depth asked for is only the most it searches
+    long timeMs = Long.getLong("connect4.timeMs", 0);
+    //-Dconnect4.solve=true makes the AI play perfectly by solving positions instead of searching to a depth. Nearly empty
+    //boards take too long to solve, so it only starts once there are SOLVE_FROM pieces on the board.
+    boolean solve = Boolean.getBoolean("connect4.solve");
+    static final int SOLVE_FROM = 12;
+    //-Dconnect4.ponder=true lets the AI search the replies to its move while waiting for yours (see Engine.ponder)
+    boolean ponder = Boolean.getBoolean("connect4.ponder");
+    //-Dconnect4.board=8x7 or 9x8x5 plays a variant, width first and then the height and how many in a row win (4 if left
+    //out). Variants are searched by VariantSearch, without the book, the cache or the solver.
+    Geometry geometry = Geometry.parse(System.getProperty("connect4.board", "7x6x4"));
     private static Scanner s = new Scanner(System.in);
 
 
     public Connect4() {
+        try {
+            engine.metrics().register("console");
+        } catch (JMException e) {
+            System.out.println("Couldn't register the search metrics with JMX: " + e.getMessage());
+        }
+        if (!geometry.equals(Geometry.STANDARD)) {
+            playVariant();
+            return;
+        }
         fillBoard();
         printBoard();
         play();
+        if (cache != null) {
+            try {
+                cache.close();
+            } catch (IOException e) {
+                System.out.println("Couldn't close the position cache: " + e.getMessage());
+            }
+        }
+    }
+
+    //set up a board without starting a game, so the methods can be called from other code like Benchmark
+    public Connect4(Bitboard position) {
+        fillBoard();
+        this.position = new Bitboard(position);
+        position.toArray(board);
     }
 
     //This method structures the program. Provides prompts for the user's columns and notifies the user when the column is full.
@@ -32,13 +86,15 @@ public class Connect4 {
         int depth;
         System.out.println("How deep do you want the AI to search (how deep to ply): ");
         depth = s.nextInt();
+        Limits limits = Limits.depth(depth).withTime(timeMs).withSolveFrom(solve ? SOLVE_FROM : -1)
+                .withOrderFromPrevious(Boolean.getBoolean("connect4.orderFromPrevious"));
 
         while (true) {
 
             System.out.print("Enter a column: ");
             int play = s.nextInt();
-            if (play < 0 | play > 6) {
-                System.out.println("Column choices are between 0-6");
+            if (play < 0 | play > Bitboard.WIDTH - 1) {
+                System.out.println("Column choices are between 0-" + (Bitboard.WIDTH - 1));
                 play();
             }
             if (filledColumnCheck(play)) {
@@ -58,22 +114,29 @@ public class Connect4 {
                     player = true;
                 }
             }
-            //get all possible next moves
-            ArrayList<String[][]> possibleStates = new ArrayList<>();
-            possibleStates = getPossibleStates(board, player);
-
-            //for all possible next moves take max score from minimax
-            //since we pass the minimax algorithm all possible moves for the AI, the next set of moves would be the
-            //humans moves therefore, the original call will be passed as false.
-            int bestScore = Integer.MIN_VALUE;
-            int minimaxScore, bestAIMove = 0;
-
-            for (int i = 0; i < possibleStates.size(); i++) {
-                minimaxScore = minimax(possibleStates.get(i), depth, false);
-                if (minimaxScore > bestScore) {
-                    bestScore = minimaxScore;
-                    bestAIMove = i;
-                }
+            //search the AI's move. Every column is scored by searching depth plies below it with alpha-beta pruning,
+            //which picks the same column plain minimax would without looking at all of its positions.
+            engine.stopPondering();
+            SearchResult result = engine.bestMove(Position.of(position), limits, memory);
+            int bestAIMove = result.move();
+            if (bestAIMove == -1) {
+                System.out.println("The board is full, it's a draw!");
+                return;
+            }
+            if (result.source().equals(SearchResult.BOOK)) {
+                System.out.println("The AI played from its opening book");
+            } else if (result.source().equals(SearchResult.PONDER)) {
+                System.out.println("The AI searched this move " + result.depth() + " plies deep while you were thinking");
+            } else if (result.source().equals(SearchResult.CACHE)) {
+                System.out.println("The AI played a move it searched " + result.depth() + " plies deep before");
+            } else if (result.source().equals(SearchResult.SOLVER)) {
+                System.out.println("Solved " + result.nodes() + " positions, the AI has a "
+                        + Solver.describe(result.score(), position.moves));
+            } else {
+                logSearch(result);
+            }
+            if (metricsLog) {
+                System.out.println("metrics " + result.toLogLine());
             }
             placePiece(bestAIMove, player);
             printBoard();
@@ -83,6 +146,9 @@ public class Connect4 {
             if (checkForWin(player, board)) {
                 break;
             } else {
+                if (ponder) {
+                    engine.ponder(Position.of(position), limits);
+                }
                 if (player) {
                     player = false;
                 } else {
@@ -99,17 +165,115 @@ public class Connect4 {
         }
     }
 
+    //play() on a board of another size. The human is "X" and goes first like the standard game.
+    public void playVariant() {
+        GridBoard variant = GridBoard.of(geometry);
+        VariantSearch search = new VariantSearch(geometry);
+        System.out.println("Playing " + geometry.n + " in a row on a " + geometry.width + "x" + geometry.height + " board");
+        System.out.println("How deep do you want the AI to search (how deep to ply): ");
+        int depth = s.nextInt();
+        printVariant(variant);
+        while (!variant.isFull()) {
+            int column;
+            if (variant.sideToMove()) {
+                search.nodes = 0;
+                column = search.bestMove(variant, depth);
+                System.out.println("Searched " + search.nodes + " positions, the AI has chosen column: " + column);
+            } else {
+                System.out.print("Enter a column: ");
+                column = s.nextInt();
+                if (column < 0 || column >= geometry.width || variant.isFull(column)) {
+                    System.out.println("Column choices are the columns that aren't full between 0-" + (geometry.width - 1));
+                    continue;
+                }
+            }
+            boolean player = variant.sideToMove();
+            variant.play(column, player);
+            printVariant(variant);
+            if (variant.wonWith(column)) {
+                System.out.println(player ? "AI has won!" : "You have won!");
+                return;
+            }
+        }
+        System.out.println("The board is full, it's a draw!");
+    }
+
+    //print a variant board like printBoard
+    public void printVariant(GridBoard variant) {
+        for (int column = 0; column < geometry.width; column++) {
+            System.out.print(" " + column);
+        }
+        System.out.println();
+        for (int row = geometry.height - 1; row >= 0; row--) {
+            for (int column = 0; column < geometry.width; column++) {
+                System.out.print("|" + variant.get(column, row));
+            }
+            System.out.println("|");
+        }
+    }
+
+    //open the opening book, or carry on without one if it can't be read
+    public static OpeningBook loadBook(String file) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(Paths.get(file));
+        } catch (IOException e) {
+            System.out.println("Couldn't open the opening book " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    //open the position cache, or carry on without one if it can't be opened
+    public static PositionCache loadCache(String directory) {
+        if (directory == null) {
+            return null;
+        }
+        try {
+            return PositionCache.open(Paths.get(directory), Integer.getInteger("connect4.cacheEntries", 1 << 20));
+        } catch (IOException e) {
+            System.out.println("Couldn't open the position cache " + directory + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    //print how much work the search did for the last move, and how much plain minimax does for the same move if asked to
+    public void logSearch(SearchResult result) {
+        if (timeMs > 0) {
+            System.out.println("Reached depth " + result.depth() + " in " + result.timeNanos() / 1000000 + " of " + timeMs
+                    + " ms");
+        }
+        SearchMetrics metrics = result.metrics();
+        System.out.println("Searched " + metrics.nodes() + " positions with " + metrics.cutoffs() + " cutoffs at depth "
+                + result.depth() + ", allocating " + metrics.allocatedBytes() + " bytes");
+        System.out.println("Transposition table: " + metrics.tableHits() + " hits, " + metrics.tableMisses() + " misses, "
+                + metrics.tableCollisions() + " collisions, " + Math.round(metrics.tableHitRate() * 100) + "% hit rate");
+        if (compareSearch) {
+            Search plain = new Search();
+            int plainMove = plain.minimaxMove(position, result.depth());
+            System.out.println("Plain minimax searched " + plain.nodes + " positions and picked column " + plainMove
+                    + (plainMove == result.move() ? " (same move)" : " (DIFFERENT move)"));
+        }
+    }
+
     //This method follows the minimax algorithm covered in class and tutorial to find optimal moves.
     public int minimax(String[][] possibleState, int depth, boolean maximizingPlayer) {
+        if (possibleState == null)
+            return Integer.MIN_VALUE;
+        return minimax(new Bitboard(possibleState), depth, maximizingPlayer);
+    }
+
+    //the same minimax on a bitboard. This is what the AI actually searches with.
+    public int minimax(Bitboard possibleState, int depth, boolean maximizingPlayer) {
 
         int value;
-        ArrayList<String[][]> childStates;
-        boolean won = false;
+        ArrayList<Bitboard> childStates;
         if (possibleState == null)
             return Integer.MIN_VALUE;
 
-        //if the depth is 0 or the node is a terminal node
-        if (depth == 0 | checkForWin(maximizingPlayer, possibleState)) {
+        //if the depth is 0 or the node is a terminal node (the player who just moved won or the board is full)
+        if (depth == 0 || checkForWin(!maximizingPlayer, possibleState) || possibleState.isFull()) {
             //return the value the heuristic returns
             value = heuristic(possibleState, maximizingPlayer);
             return value;
@@ -130,8 +294,10 @@ public class Connect4 {
             value = Integer.MAX_VALUE;
             childStates = getPossibleStates(possibleState, maximizingPlayer);
             for (int i = 0; i < childStates.size(); i++) {
-                //find the min value of the nodes children
-                value = Math.min(value, minimax(childStates.get(i), depth - 1, true));
+                if (childStates.get(i) != null) {
+                    //find the min value of the nodes children
+                    value = Math.min(value, minimax(childStates.get(i), depth - 1, true));
+                }
             }
             return value;
         }
@@ -140,67 +306,32 @@ public class Connect4 {
     //this method calculates the score of the board state for the AI. Higher the value the better the board state is for
     //the AI
     public int heuristic(String[][] possibleState, boolean maximizingPlayer) {
-        int value;
-        //if the board state is won for the human the board state is worst possible scenario
-        if (checkForWin(player, possibleState)) {//if the AI can win set it to the highest possible value.
-            value = Integer.MAX_VALUE;
-            return value;
-        } else if (checkForWin(!player, possibleState)) {//if the human has a chance to win set it to the lowest possible value
-            value = Integer.MIN_VALUE;
-            return value;
-        }
-
-        int countThree = 0, countTwo = 0, opponentThree = 0, opponentTwo = 0;
-
-        //count the amount of two and three in a row each person has and adjust the value accordingly.
-        countTwo = countInARow(player, possibleState, 2);
-        countTwo *= 250;
-        opponentTwo = countInARow(!player, possibleState, 2);
-        opponentTwo *= -10;
-
-        countThree = countInARow(player, possibleState, 3);
-        countThree *= 1000;
-        opponentThree = countInARow(!player, possibleState, 3);
-        opponentThree *= -100;
-
-        //if the value is very low prioritize the middle of the board,
-        value = (countThree + countTwo + opponentThree + opponentTwo);
-        if (value < 30 & value > -30) {
-            value += ((countMiddle(player, possibleState)) * 10);
-
-        }
+        return heuristic(new Bitboard(possibleState), maximizingPlayer);
+    }
 
-        return value;
+    //the heuristic on a bitboard
+    public int heuristic(Bitboard possibleState, boolean maximizingPlayer) {
+        return Search.heuristic(possibleState, player);
     }
 
 
     //this method counts how many middle tiles the AI could obtain and assigns a value accordingly. This method returns the value
     public int countMiddle(boolean player, String[][] board) {
-        int count = 0;
-        for (int i = 5; i >= 3; i--) {
-            for (int j = 2; j < 5; j++) {
-                if (board[i][j].equals("O")) {
-                    if (i == 5 & j == 3) {
-                        count += 50;
-                    } else if (i == 5) {
-                        count += 30;
-                    } else if (i == 4) {
-                        count += 5;
-                    } else {
-                        count++;
-                    }
-                }
-            }
-        }
-        return count;
+        return countMiddle(player, new Bitboard(board));
+    }
+
+    //countMiddle on a bitboard. The bottom middle cell is worth 50, the rest of the bottom middle 30, the row above 5 and
+    //the one above that 1.
+    public int countMiddle(boolean player, Bitboard board) {
+        return board.countMiddle();
     }
 
     //this method gets a board and a player and returns all possible moves for the player/.
     public ArrayList<String[][]> getPossibleStates(String[][] board, boolean player) {
         ArrayList<String[][]> possibleStates = new ArrayList<>();
-        String[][] tmpBoard = new String[6][7];
+        String[][] tmpBoard = new String[Bitboard.HEIGHT][Bitboard.WIDTH];
 
-        for (int i = 0; i < 7; i++) {
+        for (int i = 0; i < Bitboard.WIDTH; i++) {
             tmpBoard = copyArray(board);
             if (!filledColumnCheck(i)) {
                 possibleStates.add(placeTmpPiece(i, player, tmpBoard));
@@ -211,9 +342,23 @@ public class Connect4 {
         return possibleStates;
     }
 
+    //the bitboard version of getPossibleStates. Full columns are null so the index is still the column.
+    public ArrayList<Bitboard> getPossibleStates(Bitboard board, boolean player) {
+        ArrayList<Bitboard> possibleStates = new ArrayList<>();
+
+        for (int i = 0; i < Bitboard.WIDTH; i++) {
+            if (!board.isFull(i)) {
+                possibleStates.add(placeTmpPiece(i, player, new Bitboard(board)));
+            } else {
+                possibleStates.add(null);
+            }
+        }
+        return possibleStates;
+    }
+
     //Make a copy of the board for possibleStates
     public String[][] copyArray(String[][] board) {
-        String[][] tmpBoard = new String[6][7];
+        String[][] tmpBoard = new String[Bitboard.HEIGHT][Bitboard.WIDTH];
         for (int i = 0; i < board.length; i++) {
             for (int j = 0; j < board[i].length; j++) {
                 tmpBoard[i][j] = board[i][j];
@@ -222,357 +367,45 @@ public class Connect4 {
         return tmpBoard;
     }
 
-    //check for a win horizontally and return true if found
-    public boolean checkForHorizontal(boolean player, String[][] board) {
-        int count;
-        boolean won = false;
-        for (int i = 5; i >= 0; i--) {
-            for (int j = 0; j < 4; j++) {
-                outerloop:
-                {
-                    count = 0;
-                    for (int k = j; k < (j + 4); k++) {
-                        if (player) {
-                            if (board[i][k].equals("O")) {
-                                count++;
-                                if (count == 4) {
-                                    won = true;
-                                    break;
-                                }
-                            } else {
-                                break outerloop;
-                            }
-                        } else {
-                            if (board[i][k].equals("X")) {
-                                count++;
-                                if (count == 4) {
-                                    won = true;
-                                    break;
-                                }
-                            } else {
-                                break outerloop;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return won;
-    }
-
-    //check for a win vertically and return true if found
-    public boolean checkForVertical(boolean player, String[][] board) {
-        int count;
-        boolean won = false;
-        for (int i = 5; i > 2; i--) {
-            for (int j = 0; j <= board.length; j++) {
-                outerloop:
-                {
-                    count = 0;
-                    for (int k = i; k > (i - 4); k--) {
-                        if (player) {
-                            if (board[k][j].equals("O")) {
-                                count++;
-                                if (count == 4) {
-                                    won = true;
-                                    break;
-                                }
-                            } else {
-                                break outerloop;
-                            }
-                        } else {
-                            if (board[k][j].equals("X")) {
-                                count++;
-                                if (count == 4) {
-                                    won = true;
-                                    break;
-                                }
-                            } else {
-                                break outerloop;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return won;
-    }
-
-    //sets up checkForDiangonalLeft and checkForDiangonalRight
-    public boolean checkForDiagonal(boolean player, String[][] board) {
-        if (checkForDiagonalRight(player, board) | checkForDiagonalLeft(player, board)) {
-            return true;
-        }
-        return false;
-    }
-
-    //Check for a win in the diagonal going upward and to the right. and return true if found
-    public boolean checkForDiagonalRight(boolean player, String[][] board) {
-        int count;
-        boolean won = false;
-        for (int i = 5; i >= 0; i--) {
-            for (int j = 0; j < 4; j++) {
-                outerloop:
-                {
-                    count = 0;
-                    for (int k = j; k < (j + 4); k++) {
-                        if (player) {
-                            if ((i - count) >= 0 && board[i - count][k].equals("O")) {
-                                count++;
-                                if (count == 4) {
-                                    won = true;
-                                    break;
-                                }
-                            } else {
-                                break outerloop;
-                            }
-                        } else {
-                            if ((i - count) >= 0 && board[i - count][k].equals("X")) {
-                                count++;
-                                if (count == 4) {
-                                    won = true;
-                                    break;
-                                }
-                            } else {
-                                break outerloop;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return won;
-    }
-
-    //check for a win in the diagonal going up and to the left. Returns true if found.
-    public boolean checkForDiagonalLeft(boolean player, String[][] board) {
-        int count;
-        boolean won = false;
-        for (int i = 5; i >= 0; i--) {
-            for (int j = 6; j > 2; j--) {
-                outerloop:
-                {
-                    count = 0;
-                    for (int k = j; k > (j - 4); k--) {
-                        if (player) {
-                            if ((i - count) >= 0 && board[i - count][k].equals("O")) {
-                                count++;
-                                if (count == 4) {
-                                    won = true;
-                                    break;
-                                }
-                            } else {
-                                break outerloop;
-                            }
-                        } else {
-                            if ((i - count) >= 0 && board[i - count][k].equals("X")) {
-                                count++;
-                                if (count == 4) {
-                                    won = true;
-                                    break;
-                                }
-                            } else {
-                                break outerloop;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return won;
-    }
-
-
-    //count how many in a row a player has. Returns the count of how many times it finds inARow of the same player.
-    public int countHorizontal(boolean player, String[][] board, int inARow) {
-        int count, value = 0;
-        for (int i = 5; i >= 0; i--) {
-            outerloop:
-            {
-                for (int j = 0; j < 7; j++) { //if the check would go out of the board go to the next row instead
-                    if ((j + inARow) > 6) {
-                        break outerloop;
-                    }
-                    count = 0;
-                    for (int k = j; k < (j + inARow); k++) {
-                        if (player) {
-                            if (board[i][k].equals("O")) {
-                                count++;
-                                if (count == inARow) {
-                                    value++;
-                                    j += inARow;//don't count the same one twice. For example three in a row as 2x two in a row
-                                    break outerloop;
-                                }
-                            }
-                        } else {
-                            if (board[i][k].equals("X")) {
-                                count++;
-                                if (count == inARow) {
-                                    value++;
-                                    j += inARow;
-                                    break outerloop;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return value;
-    }
-
-    //count how many in a vertically continuously a player has. Returns the count of how many times it finds inARow of the same player.
-    public int countVertical(boolean player, String[][] board, int inARow) {
-        int count, value = 0;
-        for (int i = 5; i >= 0; i--) {
-            if ((i - inARow) < 0) break;
-            for (int j = 0; j < 7; j++) {
-
-                count = 0;
-                for (int k = i; k > (i - inARow); k--) {
-                    if (player) {
-                        if (board[k][j].equals("O")) {
-                            count++;
-                            if (count == inARow) {
-                                value++;
-
-                            }
-                        }
-                    } else {
-                        if (board[k][j].equals("X")) {
-                            count++;
-                            if (count == inARow) {
-                                value++;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return value;
-    }
-
-    //sets up countDiagonalRight and countDiagonalLeft.
-    public int countDiagonal(boolean player, String[][] board, int inARow) {
-        int value;
-        value = countDiagonalRight(player, board, inARow) + countDiagonalLeft(player, board, inARow);
-
-        return value;
-    }
-
-    //counts how many times a diagonal up and to right. Returns the count of how many times it finds inARow of the same player.
-    public int countDiagonalRight(boolean player, String[][] board, int inARow) {
-        int count, value = 0;
-        boolean won = false;
-        for (int i = 5; i >= 0; i--) {
-            outerloop:
-            {
-                for (int j = 0; j < 7; j++) { //if the check would go out of the board go to the next row instead
-                    if ((j + inARow) > 6) {
-                        break outerloop;
-                    }
-                    count = 0;
-                    for (int k = j; k < (j + inARow); k++) {
-                        if (player) {
-                            if ((i - count) >= 0 && board[i - count][k].equals("O")) {
-                                count++;
-                                if (count == inARow) {
-                                    value++;
-                                }
-                            }
-                        } else {
-                            if ((i - count) >= 0 && board[i - count][k].equals("X")) {
-                                count++;
-                                if (count == inARow) {
-                                    value++;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return value;
-    }
-
-    ////counts how many times a diagonal up and to left. Returns the count of how many times it finds inARow of the same player.
-    public int countDiagonalLeft(boolean player, String[][] board, int inARow) {
-        int count, value = 0;
-        boolean won = false;
-        for (int i = 5; i >= 0; i--) {
-            outerloop:
-            {
-                for (int j = 6; j > 0; j--) {
-                    if ((j - inARow) < 0) {//if the check would go out of the board go to the next row instead
-                        break outerloop;
-                    }
-                    count = 0;
-                    for (int k = j; k > (j - inARow); k--) {
-                        if (player) {
-                            if ((i - count) >= 0 && board[i - count][k].equals("O")) {
-                                count++;
-                                if (count == inARow) {
-                                    value++;
-                                }
-                            }
-                        } else {
-                            if ((i - count) >= 0 && board[i - count][k].equals("X")) {
-                                count++;
-                                if (count == inARow) {
-                                    value++;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return value;
-    }
-
-
     //check for a win. If any of the called methods returns true then return true.
     public boolean checkForWin(boolean player, String[][] board) {
-        boolean won;
-        if (checkForHorizontal(player, board) | checkForVertical(player, board) | checkForDiagonal(player, board)) {
-            return true;
-        }
-        return false;
+        return checkForWin(player, new Bitboard(board));
+    }
+
+    //check for a win on a bitboard with shifts instead of walking the board
+    public boolean checkForWin(boolean player, Bitboard board) {
+        return board.isWin(player);
     }
 
     //count how many continuously horizontally, vertically, and diagonally for inARow amount. return the count
     public int countInARow(boolean player, String[][] board, int inARow) {
-        int value = 0;
-        value = (countHorizontal(player, board, inARow) + countVertical(player, board, inARow) + countDiagonal(player, board, inARow));
-        return value;
+        return countInARow(player, new Bitboard(board), inARow);
+    }
+
+    //countInARow on a bitboard
+    public int countInARow(boolean player, Bitboard board, int inARow) {
+        return Bitboard.countInARow(board.pieces(player), inARow);
     }
 
     //this method checks if a column in the board is filled. returns true if the spot is filled and false if it's open.
     public boolean filledColumnCheck(int column) {
-        if (!board[0][column].equals(" ")) {
-            return true;
-        }
-        return false;
+        return position.isFull(column);
     }
 
-    //This method places a piece on the board. it's receives column and the player placing the piece. counts up in the column until a open spot is found then places.
+    //This method places a piece on the board. it's receives column and the player placing the piece. The piece goes on the
+    //bitboard and the String[][] board is updated from it for printing.
     public void placePiece(int column, boolean player) {
-        for (int row = 5; row > -1; row--) {
-            if (board[row][column].equals(" ")) {
-                if (player) {
-                    board[row][column] = "O";
-                } else {
-                    board[row][column] = "X";
-                }
-                System.out.println();
-                break;
-            }
+        if (!position.isFull(column)) {
+            int row = Bitboard.HEIGHT - 1 - position.heights[column];
+            position.play(column, player);
+            board[row][column] = position.get(column, position.heights[column] - 1);
+            System.out.println();
         }
     }
 
     //places a temporary piece so that getPossibleStates can place a piece in the temporary board.
     public String[][] placeTmpPiece(int column, boolean player, String[][] board) {
-        for (int row = 5; row > -1; row--) {
+        for (int row = Bitboard.HEIGHT - 1; row > -1; row--) {
             if (board[row][column].equals(" ")) {
                 if (player) {
                     board[row][column] = "O";
@@ -585,6 +418,14 @@ public class Connect4 {
         return board;
     }
 
+    //places a temporary piece on a copy of a bitboard for getPossibleStates.
+    public Bitboard placeTmpPiece(int column, boolean player, Bitboard board) {
+        if (!board.isFull(column)) {
+            board.play(column, player);
+        }
+        return board;
+    }
+
 
     //print the board to console.
     public void printBoard() {
@@ -606,6 +447,7 @@ public class Connect4 {
         for (String[] row : board) {
             Arrays.fill(row, " ");
         }
+        position = new Bitboard();
     }
 
 
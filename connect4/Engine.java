@@ -0,0 +1,306 @@
+package connect4;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+
+The AI without the console, for anything that wants a move for a position: a server, a tournament, a test. Connect4 is one
+client of it.
+
+bestMove can be called from any number of threads at once. Everything that changes during a search belongs to one call:
+each call takes a Search and a Solver from a pool, or makes new ones if the pool is empty, and gives them back when it's
+done, so no two calls ever share a working position or move buffers. What the calls do share is safe to share without locks.
+The transposition table and the solver's table store every entry so that a half written one is never used, and the opening
+book is a read-only mapped file. The solver's table is only made the first time a position is solved, so an engine that never
+solves doesn't pay for it. With more than one thread every search splits its root over the one ForkJoinPool the engine owns,
+so the threads don't multiply with the searches in the pool.
+
+Every move is added to metrics() once it's picked, which can be shown over JMX with metrics().register.
+
+The searches only know how to find moves for "O", so when it's "X"'s turn the engine searches the position with the pieces
+swapped. The solver works for either side, and the book only has positions where it's "O"'s turn.
+
+An engine can also keep its search results in a PositionCache on disk. A position found there searched at least as deep as the
+limits allow is played without searching, and every search at least cacheDepth deep is handed to the cache afterwards, which
+writes it on a thread of its own. The cache is the caller's to close.
+
+ponder() uses the time the opponent spends on their move. On a thread of its own it searches the position after each of
+their replies, the one a short search expects first and then the rest from the middle outwards, one depth at a time for all
+of them so the likely replies get deep before any reply gets very deep. Everything it finds goes into the shared
+transposition table, and every reply finished to the depth the limits ask for is kept. stopPondering() stops it within 1024
+positions. When bestMove is then asked about the reply that was played, a kept result is played straight away, and otherwise
+the search starts with the table already holding that reply's positions, so a time limited search gets deeper in the same time.
+
+A game can keep what its searches found from one move to the next in a SearchMemory handed to bestMove: the search uses the
+memory's table (or the engine's if it has none), killers, history and principal variation instead of starting over. Pondering
+always uses the engine's table.
+
+*/
+
+public class Engine {
+    //the time limit for pondering, longer than any opponent takes. stopPondering() is what ends it.
+    private static final long PONDER_MS = 24L * 60 * 60 * 1000;
+
+    private final TranspositionTable table;
+    //the pool every search splits its root over, null when they search on one thread
+    private final ForkJoinPool pool;
+    //null when there is no book
+    private final OpeningBook book;
+    //made on the first solve, with solverMegabytes of memory
+    private volatile Solver solverTable;
+    private final int solverMegabytes;
+    private final Weights weights;
+    private final EngineMetrics metrics = new EngineMetrics();
+    //null when there is no cache
+    private final PositionCache cache;
+    private final int cacheDepth;
+
+    private final ConcurrentLinkedQueue<Search> searches = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Solver> solvers = new ConcurrentLinkedQueue<>();
+
+    //the pondering thread, the search it uses, what it has finished and the pondering going on now (null if none)
+    private ExecutorService ponderThread;
+    private final Search ponderSearch;
+    private final ConcurrentHashMap<Position, SearchResult> pondered = new ConcurrentHashMap<>();
+    private Future<?> pondering;
+
+    //an engine with a tableMegabytes transposition table whose searches split the root over a pool of threads threads
+    public Engine(int tableMegabytes, int threads, OpeningBook book) {
+        this(tableMegabytes, threads, book, Weights.DEFAULT);
+    }
+
+    //an engine whose searches score positions with other weights than the heuristic's
+    public Engine(int tableMegabytes, int threads, OpeningBook book, Weights weights) {
+        this(tableMegabytes, threads, book, weights, null, 0);
+    }
+
+    //an engine that looks moves up in a cache and keeps every search at least cacheDepth deep in it
+    public Engine(int tableMegabytes, int threads, OpeningBook book, Weights weights, PositionCache cache, int cacheDepth) {
+        this.cache = cache;
+        this.cacheDepth = cacheDepth;
+        this.table = new TranspositionTable(tableMegabytes);
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.book = book;
+        this.solverMegabytes = tableMegabytes;
+        this.weights = weights;
+        ponderSearch = new Search(false, table);
+        ponderSearch.setWeights(weights);
+    }
+
+    public Engine() {
+        this(16, 1, null);
+    }
+
+    //the totals of every move this engine picked
+    public EngineMetrics metrics() {
+        return metrics;
+    }
+
+    //the best move for the player whose turn it is. Returns a result with move -1 if the game is over.
+    public SearchResult bestMove(Position position, Limits limits) {
+        return bestMove(position, limits, null);
+    }
+
+    //the best move, searched with what the game's memory kept from its earlier moves (null for none)
+    public SearchResult bestMove(Position position, Limits limits, SearchMemory memory) {
+        SearchResult result = pickMove(position, limits, memory);
+        if (result.move() >= 0) {
+            metrics.record(result);
+        }
+        return result;
+    }
+
+    private SearchResult pickMove(Position position, Limits limits, SearchMemory memory) {
+        long start = System.nanoTime();
+        if (position.isGameOver()) {
+            return new SearchResult(-1, 0, 0, 0, 0, SearchResult.SEARCH);
+        }
+        boolean player = position.sideToMove();
+
+        if (limits.useBook && book != null && player) {
+            int move = book.lookup(position.toBitboard());
+            if (move >= 0) {
+                return new SearchResult(move, 0, 0, 0, System.nanoTime() - start, SearchResult.BOOK);
+            }
+        }
+
+        if (limits.solveFrom >= 0 && position.moves() >= limits.solveFrom) {
+            Solver solver = solvers.poll();
+            if (solver == null) {
+                solver = new Solver(solverTable());
+            }
+            try {
+                solver.nodes = 0;
+                int move = solver.bestMove(position.toBitboard(), null);
+                return new SearchResult(move, solver.bestScore, 0, solver.nodes, System.nanoTime() - start,
+                        SearchResult.SOLVER);
+            } finally {
+                solvers.offer(solver);
+            }
+        }
+
+        Bitboard board = player ? position.toBitboard() : position.toSwappedBitboard();
+        SearchResult ponderResult = pondered.get(position);
+        if (ponderResult != null && limits.timeMs == 0 && ponderResult.depth() >= limits.depth) {
+            return new SearchResult(ponderResult.move(), ponderResult.score(), ponderResult.depth(), 0,
+                    System.nanoTime() - start, SearchResult.PONDER);
+        }
+        if (cache != null) {
+            long entry = cache.lookup(board);
+            if (entry != PositionCache.MISS && PositionCache.depth(entry) >= limits.depth) {
+                return new SearchResult(PositionCache.move(entry), PositionCache.score(entry), PositionCache.depth(entry), 0,
+                        System.nanoTime() - start, SearchResult.CACHE);
+            }
+        }
+
+        Search search = searches.poll();
+        if (search == null) {
+            search = new Search(false, table, pool);
+            search.setWeights(weights);
+        }
+        try {
+            search.orderFromPrevious = limits.orderFromPrevious;
+            search.clearCounts();
+            if (memory != null) {
+                memory.newMove();
+                search.useMemory(memory);
+                search.table = memory.table != null ? memory.table : table;
+                search.firstMove = memory.expectedMove(position);
+            }
+            int move;
+            int depth = limits.depth;
+            if (limits.timeMs > 0) {
+                move = search.bestMoveInTime(board, limits.timeMs, limits.depth);
+                depth = search.depthReached;
+            } else {
+                move = search.bestMove(board, limits.depth);
+            }
+            if (cache != null && move >= 0 && depth >= cacheDepth) {
+                cache.store(board, depth, search.bestScore, move);
+            }
+            if (memory != null) {
+                memory.remember(position, search, board, move);
+            }
+            return SearchResult.of(search, move, depth, System.nanoTime() - start);
+        } finally {
+            search.useMemory(null);
+            search.table = table;
+            search.firstMove = Search.NO_MOVE;
+            searches.offer(search);
+        }
+    }
+
+    //search the replies to a position on the pondering thread until stopPondering() is called. The position is the one
+    //the opponent has to move in, and limits the ones the engine's next move will be asked for with.
+    public synchronized void ponder(Position position, Limits limits) {
+        stopPondering();
+        if (position.isGameOver()) {
+            return;
+        }
+        if (ponderThread == null) {
+            ponderThread = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pondered.clear();
+        ponderSearch.stopped = false;
+        pondering = ponderThread.submit(() -> ponderReplies(position, limits));
+    }
+
+    //stop pondering and wait for the pondering thread to let go of the search
+    public synchronized void stopPondering() {
+        if (pondering == null) {
+            return;
+        }
+        ponderSearch.stop();
+        try {
+            pondering.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pondering failed", e.getCause());
+        }
+        pondering = null;
+    }
+
+    private void ponderReplies(Position position, Limits limits) {
+        //the reply a short search expects first, then the others from the middle out
+        Search search = ponderSearch;
+        boolean opponent = position.sideToMove();
+        search.clearCounts();
+        int expected = search.bestMove(opponent ? position.toBitboard() : position.toSwappedBitboard(), 2);
+        if (search.stopped) {
+            return;
+        }
+        Position[] replies = new Position[Bitboard.WIDTH];
+        int count = 0;
+        for (int i = -1; i < Search.CENTER_ORDER.length; i++) {
+            int column = i < 0 ? expected : Search.CENTER_ORDER[i];
+            if (column >= 0 && position.canPlay(column) && (i < 0 || column != expected)) {
+                Position reply = position.play(column);
+                if (!reply.isGameOver()) {
+                    replies[count++] = reply;
+                }
+            }
+        }
+
+        int maxDepth = Math.min(limits.depth, Bitboard.WIDTH * Bitboard.HEIGHT - position.moves() - 2);
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            for (int i = 0; i < count; i++) {
+                Position reply = replies[i];
+                Bitboard board = reply.sideToMove() ? reply.toBitboard() : reply.toSwappedBitboard();
+                search.clearCounts();
+                long start = System.nanoTime();
+                int move = search.bestMoveInTime(board, PONDER_MS, depth);
+                if (search.stopped) {
+                    return;
+                }
+                pondered.put(reply, SearchResult.of(search, move, search.depthReached, System.nanoTime() - start));
+            }
+        }
+    }
+
+    //the table the solvers share, made the first time it's needed
+    private Solver solverTable() {
+        Solver solverTable = this.solverTable;
+        if (solverTable == null) {
+            synchronized (this) {
+                solverTable = this.solverTable;
+                if (solverTable == null) {
+                    solverTable = new Solver(solverMegabytes);
+                    this.solverTable = solverTable;
+                }
+            }
+        }
+        return solverTable;
+    }
+
+    //forget everything the searches and the solver have stored
+    public void clear() {
+        table.clear();
+        Solver solverTable = this.solverTable;
+        if (solverTable != null) {
+            solverTable.reset();
+        }
+        pondered.clear();
+    }
+
+    //stop the searches' pool threads. Only needed when the engine searches with more than one thread.
+    public void close() {
+        stopPondering();
+        if (ponderThread != null) {
+            ponderThread.shutdown();
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package connect4;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+
+Running totals of everything an Engine's searches counted, and the last move's metrics, shown over JMX as
+connect4:type=Engine,name=<name> once register() is called.
+
+Searches never touch these while they run. Each one counts in its own Search and the engine adds the whole search in here
+once it's done (see SearchMetrics), so the totals cost a handful of LongAdder additions per move however many threads are
+searching at once.
+
+*/
+
+public class EngineMetrics implements EngineMetricsMBean {
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder bookMoves = new LongAdder();
+    private final LongAdder solvedMoves = new LongAdder();
+    private final LongAdder cachedMoves = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder leaves = new LongAdder();
+    private final LongAdder cutoffs = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+    private final LongAdder tableMisses = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private volatile SearchResult last;
+
+    //add a finished move to the totals
+    public void record(SearchResult result) {
+        SearchMetrics metrics = result.metrics();
+        if (result.source().equals(SearchResult.BOOK)) {
+            bookMoves.increment();
+        } else if (result.source().equals(SearchResult.SOLVER)) {
+            solvedMoves.increment();
+        } else if (result.source().equals(SearchResult.CACHE)) {
+            cachedMoves.increment();
+        } else {
+            searches.increment();
+        }
+        nodes.add(metrics.nodes());
+        leaves.add(metrics.leaves());
+        cutoffs.add(metrics.cutoffs());
+        tableHits.add(metrics.tableHits());
+        tableMisses.add(metrics.tableMisses());
+        allocatedBytes.add(metrics.allocatedBytes());
+        searchNanos.add(result.timeNanos());
+        last = result;
+    }
+
+    //show these metrics over JMX under a name, like "console"
+    public void register(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                new ObjectName("connect4:type=Engine,name=" + ObjectName.quote(name)));
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getBookMoves() {
+        return bookMoves.sum();
+    }
+
+    @Override
+    public long getSolvedMoves() {
+        return solvedMoves.sum();
+    }
+
+    @Override
+    public long getCachedMoves() {
+        return cachedMoves.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getLeaves() {
+        return leaves.sum();
+    }
+
+    @Override
+    public long getCutoffs() {
+        return cutoffs.sum();
+    }
+
+    @Override
+    public long getTableHits() {
+        return tableHits.sum();
+    }
+
+    @Override
+    public long getTableMisses() {
+        return tableMisses.sum();
+    }
+
+    @Override
+    public double getTableHitRate() {
+        long hits = tableHits.sum();
+        long probes = hits + tableMisses.sum();
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public long getSearchTimeMillis() {
+        return searchNanos.sum() / 1000000;
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : nodes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public int getLastDepth() {
+        SearchResult result = last;
+        return result == null ? 0 : result.depth();
+    }
+
+    @Override
+    public long getLastNodes() {
+        SearchResult result = last;
+        return result == null ? 0 : result.nodes();
+    }
+
+    @Override
+    public double getLastEffectiveBranchingFactor() {
+        SearchResult result = last;
+        return result == null ? 0 : result.metrics().effectiveBranchingFactor();
+    }
+
+    @Override
+    public long[] getLastTimePerDepthMicros() {
+        SearchResult result = last;
+        if (result == null) {
+            return new long[0];
+        }
+        long[] micros = result.metrics().depthNanos();
+        for (int i = 0; i < micros.length; i++) {
+            micros[i] /= 1000;
+        }
+        return micros;
+    }
+
+    @Override
+    public String getLastMove() {
+        SearchResult result = last;
+        return result == null ? "" : result.toLogLine();
+    }
+
+    @Override
+    public void reset() {
+        searches.reset();
+        bookMoves.reset();
+        solvedMoves.reset();
+        cachedMoves.reset();
+        nodes.reset();
+        leaves.reset();
+        cutoffs.reset();
+        tableHits.reset();
+        tableMisses.reset();
+        allocatedBytes.reset();
+        searchNanos.reset();
+        last = null;
+    }
+}
@@ -0,0 +1,47 @@
+package connect4;
+
+/*
+
+The attributes and operations EngineMetrics shows over JMX, for jconsole or any other JMX client.
+
+*/
+
+public interface EngineMetricsMBean {
+    long getSearches();
+
+    long getBookMoves();
+
+    long getSolvedMoves();
+
+    long getCachedMoves();
+
+    long getNodes();
+
+    long getLeaves();
+
+    long getCutoffs();
+
+    long getTableHits();
+
+    long getTableMisses();
+
+    double getTableHitRate();
+
+    long getAllocatedBytes();
+
+    long getSearchTimeMillis();
+
+    double getNodesPerSecond();
+
+    int getLastDepth();
+
+    long getLastNodes();
+
+    double getLastEffectiveBranchingFactor();
+
+    long[] getLastTimePerDepthMicros();
+
+    String getLastMove();
+
+    void reset();
+}
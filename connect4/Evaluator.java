@@ -0,0 +1,176 @@
+package connect4;
+
+/*
+
+Scores positions for the search with the same weights the heuristic has always used: 250 for every two in a row the AI has,
+-10 for every two the human has, 1000 and -100 for threes, and the countMiddle bonus times 10 when the score is close to 0.
+A two or three in a row is a line of four cells (see Lines) holding that many of a player's pieces and none of the other
+player's, so it can still become four. A line holding four is a win.
+
+Instead of looking at the whole board at every leaf the evaluator keeps how many pieces each player has in each of the 69
+lines, along with running totals of twos, threes and fours. Placing or removing a piece only updates the lines through that
+cell, so evaluate() itself is just a few additions. It has to be told about every move the search makes (add and remove),
+and reset to the root position before a search starts.
+
+An evaluator scores with Weights.DEFAULT unless it's given other weights. The static evaluate always uses the defaults.
+
+evaluate(Bitboard) scores a position from scratch with LineScan.scanSwar instead, which counts all 69 lines without a branch.
+Search can score its leaves that way and skip keeping the counts as it plays (Search.swarLeaves). Both give the same scores.
+-Dconnect4.swar=true turns it on for every search and makes the static evaluate use scanSwar too, otherwise it uses the line
+by line scan.
+
+*/
+
+public class Evaluator {
+    public static final int TWO = Weights.DEFAULT.two;
+    public static final int OPPONENT_TWO = Weights.DEFAULT.opponentTwo;
+    public static final int THREE = Weights.DEFAULT.three;
+    public static final int OPPONENT_THREE = Weights.DEFAULT.opponentThree;
+    public static final int MIDDLE = Weights.DEFAULT.middle;
+
+    public static final boolean SWAR = Boolean.getBoolean("connect4.swar");
+
+    //what countMiddle gives an AI piece on each bit of the board
+    private static final int[] MIDDLE_WEIGHT = middleWeights();
+
+    //a scan for each thread to score with from scratch, so evaluate(Bitboard, boolean) doesn't allocate
+    private static final ThreadLocal<LineScan> SCANS = ThreadLocal.withInitial(LineScan::new);
+
+    //pieces in each line for the AI ("O") and the human ("X")
+    private final byte[] countO = new byte[Lines.COUNT];
+    private final byte[] countX = new byte[Lines.COUNT];
+    private final LineScan scan = new LineScan();
+
+    int twosO, threesO, foursO;
+    int twosX, threesX, foursX;
+    int middle;
+
+    Weights weights = Weights.DEFAULT;
+
+    //start over from a position
+    public void reset(Bitboard board) {
+        for (int i = 0; i < Lines.COUNT; i++) {
+            countO[i] = 0;
+            countX[i] = 0;
+        }
+        twosO = threesO = foursO = 0;
+        twosX = threesX = foursX = 0;
+        middle = 0;
+        for (int bit = 0; bit < MIDDLE_WEIGHT.length; bit++) {
+            if ((board.o >>> bit & 1) != 0) {
+                add(bit, true);
+            } else if ((board.x >>> bit & 1) != 0) {
+                add(bit, false);
+            }
+        }
+    }
+
+    //a piece was placed on a bit of the board
+    public void add(int bit, boolean player) {
+        int[] lines = Lines.CELL_LINES[bit];
+        for (int i = 0; i < lines.length; i++) {
+            int line = lines[i];
+            tally(line, -1);
+            if (player) {
+                countO[line]++;
+            } else {
+                countX[line]++;
+            }
+            tally(line, 1);
+        }
+        if (player) {
+            middle += MIDDLE_WEIGHT[bit];
+        }
+    }
+
+    //a piece was taken off a bit of the board
+    public void remove(int bit, boolean player) {
+        int[] lines = Lines.CELL_LINES[bit];
+        for (int i = 0; i < lines.length; i++) {
+            int line = lines[i];
+            tally(line, -1);
+            if (player) {
+                countO[line]--;
+            } else {
+                countX[line]--;
+            }
+            tally(line, 1);
+        }
+        if (player) {
+            middle -= MIDDLE_WEIGHT[bit];
+        }
+    }
+
+    //add (sign 1) or take away (sign -1) what a line counts towards the totals
+    private void tally(int line, int sign) {
+        int o = countO[line];
+        int x = countX[line];
+        if (x == 0) {
+            if (o == 2) {
+                twosO += sign;
+            } else if (o == 3) {
+                threesO += sign;
+            } else if (o == 4) {
+                foursO += sign;
+            }
+        }
+        if (o == 0) {
+            if (x == 2) {
+                twosX += sign;
+            } else if (x == 3) {
+                threesX += sign;
+            } else if (x == 4) {
+                foursX += sign;
+            }
+        }
+    }
+
+    //the score of the current position for the AI
+    public int evaluate() {
+        if (foursO > 0) {
+            return Integer.MAX_VALUE;
+        } else if (foursX > 0) {
+            return Integer.MIN_VALUE;
+        }
+        return weights.score(twosO, threesO, twosX, threesX, middle);
+    }
+
+    //score a position from scratch with scanSwar, without the counts
+    public int evaluate(Bitboard board) {
+        scan.scanSwar(board.o, board.x);
+        if (scan.winO) {
+            return Integer.MAX_VALUE;
+        } else if (scan.winX) {
+            return Integer.MIN_VALUE;
+        }
+        return weights.score(scan.twosO, scan.threesO, scan.twosX, scan.threesX, board.countMiddle());
+    }
+
+    //score a position from scratch by looking at every line. player is the side the score is for, the middle bonus is
+    //always for "O" like countMiddle.
+    public static int evaluate(Bitboard board, boolean player) {
+        LineScan scan = SWAR ? SCANS.get().scanSwar(board) : SCANS.get().scan(board);
+        if (scan.isWin(player)) {
+            return Integer.MAX_VALUE;
+        } else if (scan.isWin(!player)) {
+            return Integer.MIN_VALUE;
+        }
+        return score(scan.count(player, 2), scan.count(player, 3), scan.count(!player, 2), scan.count(!player, 3),
+                board.countMiddle());
+    }
+
+    //put the counts together with the heuristic's weights. If the value is very low prioritize the middle of the board.
+    public static int score(int twos, int threes, int opponentTwos, int opponentThrees, int middle) {
+        return Weights.DEFAULT.score(twos, threes, opponentTwos, opponentThrees, middle);
+    }
+
+    private static int[] middleWeights() {
+        int[] weights = new int[Bitboard.WIDTH * Bitboard.H1];
+        for (int column = 2; column <= 4; column++) {
+            weights[column * Bitboard.H1] = column == 3 ? 50 : 30;
+            weights[column * Bitboard.H1 + 1] = 5;
+            weights[column * Bitboard.H1 + 2] = 1;
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,256 @@
+package connect4;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+
+Grades every move of a file of finished games, one game per line written as the columns played, like "3344256". Every
+position is searched depth plies deep with every column scored exactly (Search.scoreColumns), and each move gets a line:
+
+    <game> <move> <column played> <best column> <best score> <score of the column played> <ok|blunder>
+
+game is the line number in the file, scores are for the player who moved, and a win or loss the search found is written as
+win or loss. A move is a blunder when it throws away a win, walks into a loss, or scores at least BLUNDER less than the best
+move. A line that breaks the rules (a full column, a move after the game is over, something that isn't a column) gets a line
+saying so after the moves before it.
+
+The file is memory mapped 64 MB at a time and read straight from the mapping. Games are handed to a fixed pool of threads
+as they're read, and the lines are written in the order of the file: at most WINDOW games per thread are being graded or
+waiting to be written at once, and reading waits for the oldest one when there are that many. Positions that come up more
+than once, like the openings, are only searched once: their scores are kept in a cache under the lower of the position's key
+and its mirror image's. The cache is two arrays, the keys and seven scores for each, ENTRY_BYTES an entry, and takes a
+quarter of the heap unless it's given a size. Like TranspositionTable it needs no locks: the key is stored xor'd with a
+check of the scores, so an entry another thread was halfway through writing is just a miss. So the memory used depends on
+the threads and the cache, never on the size of the file, and a file of 200000 games grades in a 32 MB heap.
+
+Every position is searched with a transposition table that is cleared first (or none below TABLE_DEPTH), so its scores are
+the ones plain minimax finds and don't depend on which thread searched what before. The output is the same for any number of
+threads.
+
+    java connect4.GameAnalyzer <games file> [depth=8] [threads=cores] [output file=-] [cache megabytes=a quarter of the heap]
+
+*/
+
+public class GameAnalyzer {
+    //a move scoring this much less than the best one is a blunder, about a three in a row
+    static final int BLUNDER = 1000;
+    //games being graded or waiting to be written, per thread
+    private static final int WINDOW = 16;
+    private static final int TABLE_MEGABYTES = 1;
+    //shallower searches are faster without a table than clearing one for every position
+    private static final int TABLE_DEPTH = 5;
+    private static final long MAP_BYTES = 64L << 20;
+    //longer lines can't be games, only so much of one is kept
+    private static final int MAX_LINE = 256;
+
+    //a key and the scores of the seven columns
+    static final int ENTRY_BYTES = 8 + 4 * Bitboard.WIDTH;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final int depth;
+    private final int threads;
+    //the keys xor'd with the check of their scores, and the scores
+    private final long[] cacheKeys;
+    private final int[] cacheScores;
+    private final int cacheShift;
+    private final ThreadLocal<Search> searches;
+
+    final LongAdder games = new LongAdder();
+    final LongAdder positions = new LongAdder();
+    final LongAdder searched = new LongAdder();
+    final LongAdder blunders = new LongAdder();
+    final LongAdder invalid = new LongAdder();
+
+    //an analyzer whose cache takes about cacheBytes, rounded down to a power of two number of entries
+    public GameAnalyzer(int depth, int threads, long cacheBytes) {
+        this.depth = depth;
+        this.threads = threads;
+        int size = Integer.highestOneBit((int) Math.max(2, Math.min(cacheBytes / ENTRY_BYTES, 1 << 26)));
+        cacheKeys = new long[size];
+        cacheScores = new int[size * Bitboard.WIDTH];
+        cacheShift = 64 - Integer.numberOfTrailingZeros(size);
+        searches = ThreadLocal.withInitial(() -> new Search(false,
+                depth >= TABLE_DEPTH ? new TranspositionTable(TABLE_MEGABYTES) : null));
+    }
+
+    //grade every game in a file and write the lines to out in the order of the file
+    public void run(Path file, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            StringBuilder line = new StringBuilder();
+            long lineNumber = 1;
+            for (long offset = 0; offset < size; offset += MAP_BYTES) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAP_BYTES, size - offset));
+                while (chunk.hasRemaining()) {
+                    byte b = chunk.get();
+                    if (b == '\n') {
+                        submit(pool, pending, lineNumber++, line.toString(), out);
+                        line.setLength(0);
+                    } else if (b != '\r' && line.length() < MAX_LINE) {
+                        line.append((char) b);
+                    }
+                }
+            }
+            submit(pool, pending, lineNumber, line.toString(), out);
+            while (!pending.isEmpty()) {
+                out.write(next(pending));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+    }
+
+    //hand a game to the pool, writing out the oldest game first if the window is full
+    private void submit(ExecutorService pool, ArrayDeque<Future<String>> pending, long number, String moves, Writer out)
+            throws IOException {
+        if (moves.trim().isEmpty()) {
+            return;
+        }
+        if (pending.size() >= threads * WINDOW) {
+            out.write(next(pending));
+        }
+        pending.add(pool.submit(() -> analyze(number, moves.trim())));
+    }
+
+    private static String next(ArrayDeque<Future<String>> pending) throws IOException {
+        try {
+            return pending.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while grading games", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Couldn't grade a game", e.getCause());
+        }
+    }
+
+    //the lines for one game
+    String analyze(long number, String moves) {
+        games.increment();
+        StringBuilder lines = new StringBuilder();
+        Position position = Position.EMPTY;
+        for (int ply = 0; ply < moves.length(); ply++) {
+            char move = moves.charAt(ply);
+            int column = move - '0';
+            if (position.isGameOver() || column < 0 || column >= Bitboard.WIDTH || !position.canPlay(column)) {
+                invalid.increment();
+                lines.append(number).append(' ').append(ply + 1).append(" invalid ")
+                        .append(position.isGameOver() ? "the game is already over" : "can't play " + move).append('\n');
+                break;
+            }
+            int[] scores = scores(position);
+            int best = -1;
+            for (int c = 0; c < Bitboard.WIDTH; c++) {
+                if (position.canPlay(c) && (best == -1 || scores[c] > scores[best])) {
+                    best = c;
+                }
+            }
+            int played = scores[column];
+            boolean blunder = played < scores[best] && (played == Integer.MIN_VALUE || scores[best] == Integer.MAX_VALUE
+                    || (long) scores[best] - played >= BLUNDER);
+            if (blunder) {
+                blunders.increment();
+            }
+            positions.increment();
+            lines.append(number).append(' ').append(ply + 1).append(' ').append(column).append(' ').append(best)
+                    .append(' ').append(describe(scores[best])).append(' ').append(describe(played))
+                    .append(blunder ? " blunder\n" : " ok\n");
+            position = position.play(column);
+        }
+        return lines.toString();
+    }
+
+    //the scores of every column for the player to move, from the cache or searched
+    private int[] scores(Position position) {
+        Bitboard board = position.sideToMove() ? position.toBitboard() : position.toSwappedBitboard();
+        long key = board.key();
+        long mirroredKey = Bitboard.mirror(key);
+        boolean mirrored = mirroredKey < key;
+        if (mirrored) {
+            key = mirroredKey;
+        }
+        int slot = (int) ((key * GOLDEN) >>> cacheShift);
+        int[] scores = new int[Bitboard.WIDTH];
+        System.arraycopy(cacheScores, slot * Bitboard.WIDTH, scores, 0, Bitboard.WIDTH);
+        if ((cacheKeys[slot] ^ check(scores)) != key) {
+            Search search = searches.get();
+            if (search.table != null) {
+                search.table.clear();
+            }
+            search.scoreColumns(board, depth, scores);
+            searched.increment();
+            if (mirrored) {
+                scores = reversed(scores);
+            }
+            //the scores first, so a reader that sees the new key sees them too, or a check that doesn't match
+            System.arraycopy(scores, 0, cacheScores, slot * Bitboard.WIDTH, Bitboard.WIDTH);
+            cacheKeys[slot] = key ^ check(scores);
+        }
+        return mirrored ? reversed(scores) : scores;
+    }
+
+    //a hash of the scores with the top bit set, which no key has, so an empty slot never matches
+    private static long check(int[] scores) {
+        long check = 0;
+        for (int score : scores) {
+            check = (check + score) * GOLDEN;
+        }
+        return check | Long.MIN_VALUE;
+    }
+
+    private static int[] reversed(int[] scores) {
+        int[] reversed = new int[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            reversed[scores.length - 1 - i] = scores[i];
+        }
+        return reversed;
+    }
+
+    private static String describe(int score) {
+        return score == Integer.MAX_VALUE ? "win" : score == Integer.MIN_VALUE ? "loss" : Integer.toString(score);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java connect4.GameAnalyzer <games file> [depth] [threads] [output file] [cache megabytes]");
+            return;
+        }
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean toFile = args.length > 3 && !args[3].equals("-");
+        long cacheBytes = args.length > 4 ? Long.parseLong(args[4]) << 20 : Runtime.getRuntime().maxMemory() / 4;
+        Writer out = toFile ? Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+
+        GameAnalyzer analyzer = new GameAnalyzer(depth, threads, cacheBytes);
+        long start = System.nanoTime();
+        analyzer.run(Paths.get(args[0]), out);
+        long elapsed = System.nanoTime() - start;
+        if (toFile) {
+            out.close();
+        }
+        long positions = analyzer.positions.sum();
+        System.out.printf("%d games, %d positions (%d searched, %d from the cache), %d blunders, %d invalid games%n",
+                analyzer.games.sum(), positions, analyzer.searched.sum(), positions - analyzer.searched.sum(),
+                analyzer.blunders.sum(), analyzer.invalid.sum());
+        System.out.printf("%.1f s on %d threads, %.0f positions/s%n", elapsed / 1e9, threads, positions * 1e9 / elapsed);
+    }
+}
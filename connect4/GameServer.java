@@ -0,0 +1,334 @@
+package connect4;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.management.JMException;
+
+/*
+
+Connect 4 over HTTP, so one JVM can host thousands of games instead of the one console game Connect4 plays.
+
+    POST   /games                       start a game, the human moves first. Returns its id.
+    POST   /games/<id>/move?column=c    play the human's column, then the AI's reply
+    GET    /games/<id>                  the game so far
+    DELETE /games/<id>                  end a game
+
+Every response is plain text, one key=value per line: id, moves (the columns played so far, like Bitboard.fromMoves takes),
+status (playing, won, lost or draw, from the human's side) and for a move the AI's column, its depth and how long it took.
+
+Requests are handled on virtual threads when the JVM has them (Java 21 and later) and on a cached thread pool otherwise.
+Either way the handler threads only wait, the searches themselves run on a fixed pool of searchThreads platform threads, so
+a search never holds onto a virtual thread's carrier. The search pool has a queue of queueSize moves. When the queue is
+full the move is turned away at once with 503 and a Retry-After header instead of piling up, and games past maxGames are
+turned away the same way.
+
+The engine's search metrics are shown over JMX under connect4:type=Engine,name="server".
+
+Each move has a deadline, deadlineMs after the request came in (or the deadlineMs query parameter). Time spent waiting in
+the queue counts against it: the AI searches with whatever is left, deepening until it runs out (up to depth plies), and a
+move that waited in the queue past its deadline is answered with 503 without being searched.
+
+    java connect4.GameServer [port=8080] [depth=8] [deadlineMs=1000] [searchThreads=cores] [queueSize=256] [maxGames=100000]
+
+Every game keeps what its searches found from one move to the next in a SearchMemory: the killer moves, the history and the
+principal variation, and with -Dconnect4.gameKB a transposition table of its own that many kilobytes big, so the memory a game
+takes is capped and thousands of games can each keep theirs warm. Without it the games share the engine's table.
+
+LoadTest plays games against it and measures it.
+
+*/
+
+public class GameServer {
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ThreadPoolExecutor searchPool;
+    private final Engine engine;
+    private final int depth;
+    private final long deadlineMs;
+    private final int maxGames;
+    //the size of every game's own table, 0 for the engine's
+    private final int gameKilobytes = Integer.getInteger("connect4.gameKB", 0);
+
+    private final ConcurrentHashMap<Long, Game> games = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    final AtomicLong movesPlayed = new AtomicLong();
+    final AtomicLong movesRejected = new AtomicLong();
+
+    //one game. The lock keeps two moves for the same game from being played at once, and unlike synchronized it doesn't
+    //pin a virtual thread to its carrier while it waits for the search. The position and the moves are replaced together,
+    //so a GET without the lock always sees a pair that matches.
+    private static class Game {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile State state = new State(Position.EMPTY, "");
+        final SearchMemory memory;
+
+        Game(int memoryKilobytes) {
+            memory = new SearchMemory(memoryKilobytes);
+        }
+    }
+
+    //a game's position and the columns played to get there
+    private static final class State {
+        final Position position;
+        final String moves;
+
+        State(Position position, String moves) {
+            this.position = position;
+            this.moves = moves;
+        }
+    }
+
+    public GameServer(int port, int depth, long deadlineMs, int searchThreads, int queueSize, int maxGames)
+            throws IOException {
+        this.depth = depth;
+        this.deadlineMs = deadlineMs;
+        this.maxGames = maxGames;
+        engine = new Engine(Integer.getInteger("connect4.ttMB", 64), 1, null);
+        try {
+            engine.metrics().register("server");
+        } catch (JMException e) {
+            System.out.println("Couldn't register the search metrics with JMX: " + e.getMessage());
+        }
+        searchPool = new ThreadPoolExecutor(searchThreads, searchThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize));
+        handlers = handlerExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/games", this::handle);
+        server.setExecutor(handlers);
+    }
+
+    //a virtual thread per request if this JVM has them, looked up by name so the server still builds on Java 17
+    static ExecutorService handlerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        handlers.shutdownNow();
+        searchPool.shutdownNow();
+        engine.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            //path[0] is empty and path[1] is "games"
+            if (path.length == 2 && method.equals("POST")) {
+                create(exchange);
+                return;
+            }
+            Game game = path.length >= 3 ? games.get(parseId(path[2])) : null;
+            if (game == null) {
+                respond(exchange, 404, "error=no such game\n");
+            } else if (path.length == 3 && method.equals("GET")) {
+                respond(exchange, 200, describe(path[2], game));
+            } else if (path.length == 3 && method.equals("DELETE")) {
+                games.remove(parseId(path[2]));
+                respond(exchange, 200, "id=" + path[2] + "\n");
+            } else if (path.length == 4 && path[3].equals("move") && method.equals("POST")) {
+                move(exchange, path[2], game);
+            } else {
+                respond(exchange, 405, "error=unsupported request\n");
+            }
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "error=" + e + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void create(HttpExchange exchange) throws IOException {
+        if (games.size() >= maxGames) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "error=too many games\n");
+            return;
+        }
+        long id = nextId.getAndIncrement();
+        Game game = new Game(gameKilobytes);
+        games.put(id, game);
+        respond(exchange, 200, describe(Long.toString(id), game));
+    }
+
+    private void move(HttpExchange exchange, String id, Game game) throws IOException {
+        long start = System.nanoTime();
+        String query = exchange.getRequestURI().getQuery();
+        int column = parameter(query, "column", -1);
+        long deadline = start + parameter(query, "deadlineMs", deadlineMs) * 1000000;
+        if (!game.lock.tryLock()) {
+            respond(exchange, 409, "error=a move is already being played in this game\n");
+            return;
+        }
+        try {
+            State state = game.state;
+            Position position = state.position;
+            if (position.isGameOver()) {
+                respond(exchange, 409, "error=the game is over\n" + describe(id, game));
+                return;
+            }
+            if (!position.canPlay(column)) {
+                respond(exchange, 400, "error=column " + column + " can't be played\n");
+                return;
+            }
+            Position afterHuman = position.play(column);
+
+            int aiMove = -1;
+            int aiDepth = 0;
+            if (!afterHuman.isGameOver()) {
+                Future<SearchResult> search;
+                try {
+                    search = searchPool.submit(() -> {
+                        long remaining = (deadline - System.nanoTime()) / 1000000;
+                        if (remaining <= 0) {
+                            return null;
+                        }
+                        //a search that outlived its request's wait can still be running when the next move comes
+                        synchronized (game.memory) {
+                            return engine.bestMove(afterHuman, Limits.time(remaining).withDepth(depth).withBook(false),
+                                    game.memory);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    busy(exchange, "error=the server is busy\n");
+                    return;
+                }
+                SearchResult result = waitFor(search, deadline);
+                if (result == null) {
+                    busy(exchange, "error=the move timed out waiting for a search thread\n");
+                    return;
+                }
+                aiMove = result.move();
+                aiDepth = result.depth();
+            }
+
+            //the human's move only counts once the AI has answered it, so a turned away move can just be sent again
+            if (aiMove >= 0) {
+                game.state = new State(afterHuman.play(aiMove), state.moves + column + aiMove);
+            } else {
+                game.state = new State(afterHuman, state.moves + column);
+            }
+            movesPlayed.incrementAndGet();
+            respond(exchange, 200, describe(id, game) + "move=" + aiMove + "\ndepth=" + aiDepth + "\ntimeMs="
+                    + (System.nanoTime() - start) / 1000000 + "\n");
+        } finally {
+            game.lock.unlock();
+        }
+    }
+
+    //the search's result, or null if it didn't finish in time. A search that is still queued is cancelled, one that has
+    //started stops itself at the deadline and is given a little longer to do so.
+    private SearchResult waitFor(Future<SearchResult> search, long deadline) throws IOException {
+        try {
+            return search.get(Math.max(0, deadline - System.nanoTime()) + 50000000, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            search.cancel(false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            search.cancel(false);
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void busy(HttpExchange exchange, String body) throws IOException {
+        movesRejected.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        respond(exchange, 503, body);
+    }
+
+    private static String describe(String id, Game game) {
+        State state = game.state;
+        Position position = state.position;
+        String status = "playing";
+        if (position.isWin(false)) {
+            status = "won";
+        } else if (position.isWin(true)) {
+            status = "lost";
+        } else if (position.isGameOver()) {
+            status = "draw";
+        }
+        return "id=" + id + "\nmoves=" + state.moves + "\nstatus=" + status + "\n";
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    //a number from a query string like "column=3&deadlineMs=500", or otherwise if it isn't there
+    static int parameter(String query, String name, int otherwise) {
+        return (int) parameter(query, name, (long) otherwise);
+    }
+
+    static long parameter(String query, String name, long otherwise) {
+        if (query == null) {
+            return otherwise;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                try {
+                    return Long.parseLong(pair.substring(equals + 1));
+                } catch (NumberFormatException e) {
+                    return otherwise;
+                }
+            }
+        }
+        return otherwise;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long deadlineMs = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int searchThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int queueSize = args.length > 4 ? Integer.parseInt(args[4]) : 256;
+        int maxGames = args.length > 5 ? Integer.parseInt(args[5]) : 100000;
+        GameServer server = new GameServer(port, depth, deadlineMs, searchThreads, queueSize, maxGames);
+        server.start();
+        System.out.println("Serving games on port " + server.port() + " with " + searchThreads + " search threads, depth "
+                + depth + " and a " + deadlineMs + " ms deadline per move");
+    }
+}
@@ -0,0 +1,162 @@
+package connect4;
+
+import java.util.Arrays;
+
+/*
+
+The size of a board and how many in a row win, for the variants of the game: 7x6 connect 4 is STANDARD, and there are others
+like 8x7 or 9x8 boards, or connect 5. Cells are numbered the way Bitboard numbers them, bit (column * (height + 1) + row)
+with row 0 at the bottom and a spare empty bit on top of every column, so a board of up to 64 bits fits in one long and
+anything bigger takes several (see GridBoard).
+
+Every line a player can win with is worked out from the geometry when it's made, as the bits of its cells, and as masks when
+the board fits in a long. The tables are exactly as big as the geometry needs, 69 lines for the standard board. Lines builds
+its tables from STANDARD.
+
+*/
+
+public final class Geometry {
+    public static final Geometry STANDARD = new Geometry(7, 6, 4);
+
+    public final int width;
+    public final int height;
+    //how many in a row win
+    public final int n;
+    //bits per column, the height and the spare bit
+    public final int h1;
+
+    //the cells of every line, and which lines go through each bit
+    private final int[][] lineCells;
+    private final int[][] cellLines;
+
+    public Geometry(int width, int height, int n) {
+        if (width < 1 || height < 1 || n < 3 || (n > width && n > height)) {
+            throw new IllegalArgumentException("No game on a " + width + "x" + height + " board with " + n + " in a row");
+        }
+        this.width = width;
+        this.height = height;
+        this.n = n;
+        this.h1 = height + 1;
+        lineCells = buildLines();
+        cellLines = buildCellLines();
+    }
+
+    //a geometry written like "8x7" (connect 4) or "8x7x5", width first
+    public static Geometry parse(String text) {
+        String[] parts = text.trim().toLowerCase().split("x");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("A board is written like 7x6 or 7x6x4, not " + text);
+        }
+        return new Geometry(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                parts.length == 3 ? Integer.parseInt(parts[2]) : 4);
+    }
+
+    //the bits a board of this geometry needs, with the spare bit on every column
+    public int bits() {
+        return width * h1;
+    }
+
+    //true when a board fits in one long
+    public boolean fitsInLong() {
+        return bits() <= 64;
+    }
+
+    public int cells() {
+        return width * height;
+    }
+
+    public int bit(int column, int row) {
+        return column * h1 + row;
+    }
+
+    public int lineCount() {
+        return lineCells.length;
+    }
+
+    //the bits of a line's cells
+    public int[] line(int line) {
+        return lineCells[line];
+    }
+
+    //the lines going through a bit
+    public int[] linesThrough(int bit) {
+        return cellLines[bit];
+    }
+
+    //every line as a mask, for geometries that fit in a long
+    public long[] lineMasks() {
+        if (!fitsInLong()) {
+            throw new IllegalStateException(this + " doesn't fit in a long");
+        }
+        long[] masks = new long[lineCells.length];
+        for (int i = 0; i < masks.length; i++) {
+            for (int bit : lineCells[i]) {
+                masks[i] |= 1L << bit;
+            }
+        }
+        return masks;
+    }
+
+    private int[][] buildLines() {
+        //right, up, up and to the right, down and to the right
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        int[][] lines = new int[4 * width * height][];
+        int count = 0;
+        for (int[] direction : directions) {
+            for (int column = 0; column < width; column++) {
+                for (int row = 0; row < height; row++) {
+                    int lastColumn = column + (n - 1) * direction[0];
+                    int lastRow = row + (n - 1) * direction[1];
+                    if (lastColumn >= width || lastRow < 0 || lastRow >= height) {
+                        continue;
+                    }
+                    int[] line = new int[n];
+                    for (int k = 0; k < n; k++) {
+                        line[k] = bit(column + k * direction[0], row + k * direction[1]);
+                    }
+                    lines[count++] = line;
+                }
+            }
+        }
+        return Arrays.copyOf(lines, count);
+    }
+
+    private int[][] buildCellLines() {
+        int[] counts = new int[bits()];
+        for (int[] line : lineCells) {
+            for (int bit : line) {
+                counts[bit]++;
+            }
+        }
+        int[][] lines = new int[bits()][];
+        for (int bit = 0; bit < lines.length; bit++) {
+            lines[bit] = new int[counts[bit]];
+            counts[bit] = 0;
+        }
+        for (int i = 0; i < lineCells.length; i++) {
+            for (int bit : lineCells[i]) {
+                lines[bit][counts[bit]++] = i;
+            }
+        }
+        return lines;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Geometry)) {
+            return false;
+        }
+        Geometry geometry = (Geometry) other;
+        return width == geometry.width && height == geometry.height && n == geometry.n;
+    }
+
+    @Override
+    public int hashCode() {
+        return (width * 31 + height) * 31 + n;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + "x" + n;
+    }
+}
@@ -0,0 +1,302 @@
+package connect4;
+
+/*
+
+A board of any Geometry, for the variants the standard 7x6 Bitboard can't hold. The cells are numbered like Bitboard's, bit
+(column * (height + 1) + row), with the spare top bit of every column always empty, and "O" (player == true) is the AI and
+"X" the human, who moves first.
+
+of() picks how the pieces are kept:
+
+    boards of up to 64 bits keep each player's pieces in one long, like Bitboard. A win is found with shifts, n - 1 of them in
+    each direction, and lines are counted with one mask and a bitCount each.
+    bigger boards keep them in an array of longs, a word for every 64 bits. Wins and lines are found by looking at the cells
+    of the geometry's lines, and a move only has to look at the lines through the cell it was played in.
+
+Both do the same moves and give the same answers, they only differ in speed.
+
+*/
+
+public abstract class GridBoard {
+    final Geometry geometry;
+    final int[] heights;
+    int moves;
+
+    GridBoard(Geometry geometry) {
+        this.geometry = geometry;
+        heights = new int[geometry.width];
+    }
+
+    //an empty board of a geometry
+    public static GridBoard of(Geometry geometry) {
+        return geometry.fitsInLong() ? new Packed(geometry) : new Wide(geometry);
+    }
+
+    //a position from the columns played so far, written as digits and then letters for columns past 9, e.g. "34a". The human
+    //goes first.
+    public static GridBoard fromMoves(Geometry geometry, String moves) {
+        GridBoard board = of(geometry);
+        for (int i = 0; i < moves.length(); i++) {
+            int column = Character.digit(moves.charAt(i), 36);
+            if (column < 0 || column >= geometry.width || board.isFull(column)) {
+                throw new IllegalArgumentException("Can't play column " + moves.charAt(i) + " in " + moves);
+            }
+            board.play(column, board.sideToMove());
+        }
+        return board;
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+    //whether the player's piece is on a bit
+    abstract boolean has(int bit, boolean player);
+
+    abstract void set(int bit, boolean player);
+
+    abstract void clear(int bit, boolean player);
+
+    //returns true if the player has n in a row anywhere
+    public abstract boolean isWin(boolean player);
+
+    //count the lines holding inARow of each player's pieces and none of the other's, into counts as the AI's lines with
+    //n - 2 and n - 1 pieces, then the human's. Returns 1 if the AI has n in a row, -1 if the human has and otherwise 0.
+    abstract int countLines(int[] counts);
+
+    //the player whose turn it is, "X" when the number of pieces is even
+    public boolean sideToMove() {
+        return (moves & 1) == 1;
+    }
+
+    public boolean isFull(int column) {
+        return heights[column] == geometry.height;
+    }
+
+    public boolean isFull() {
+        return moves == geometry.cells();
+    }
+
+    public void play(int column, boolean player) {
+        set(geometry.bit(column, heights[column]++), player);
+        moves++;
+    }
+
+    //take back the top piece of a column
+    public void undo(int column) {
+        int bit = geometry.bit(column, --heights[column]);
+        clear(bit, has(bit, true));
+        moves--;
+    }
+
+    //returns true if the top piece of a column is part of n in a row. Only the lines through it are looked at.
+    public boolean wonWith(int column) {
+        int bit = geometry.bit(column, heights[column] - 1);
+        boolean player = has(bit, true);
+        for (int line : geometry.linesThrough(bit)) {
+            boolean whole = true;
+            for (int cell : geometry.line(line)) {
+                if (!has(cell, player)) {
+                    whole = false;
+                    break;
+                }
+            }
+            if (whole) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //what a cell holds, "O", "X" or " "
+    public String get(int column, int row) {
+        int bit = geometry.bit(column, row);
+        return has(bit, true) ? "O" : has(bit, false) ? "X" : " ";
+    }
+
+    //countMiddle for any width: the AI's pieces at the bottom of the middle column are worth 50, at the bottom of the columns
+    //next to it 30, one row up 5 and two rows up 1
+    public int countMiddle() {
+        int middle = 0;
+        int centre = geometry.width / 2;
+        for (int column = Math.max(0, centre - 1); column <= Math.min(geometry.width - 1, centre + 1); column++) {
+            for (int row = 0; row < Math.min(3, geometry.height); row++) {
+                if (has(geometry.bit(column, row), true)) {
+                    middle += row == 0 ? (column == centre ? 50 : 30) : row == 1 ? 5 : 1;
+                }
+            }
+        }
+        return middle;
+    }
+
+    //the lines counted by the cells of every line, for boards that don't fit in a long
+    int countLinesByCells(int[] counts) {
+        int n = geometry.n;
+        int result = 0;
+        counts[0] = counts[1] = counts[2] = counts[3] = 0;
+        for (int line = 0; line < geometry.lineCount(); line++) {
+            int o = 0;
+            int x = 0;
+            for (int bit : geometry.line(line)) {
+                if (has(bit, true)) {
+                    o++;
+                } else if (has(bit, false)) {
+                    x++;
+                }
+            }
+            if (x == 0) {
+                if (o == n - 2) {
+                    counts[0]++;
+                } else if (o == n - 1) {
+                    counts[1]++;
+                } else if (o == n) {
+                    result = 1;
+                }
+            } else if (o == 0) {
+                if (x == n - 2) {
+                    counts[2]++;
+                } else if (x == n - 1) {
+                    counts[3]++;
+                } else if (x == n && result == 0) {
+                    result = -1;
+                }
+            }
+        }
+        return result;
+    }
+
+    //a board of up to 64 bits, each player's pieces in a long
+    static final class Packed extends GridBoard {
+        private final long[] lines;
+        //the shifts to the next cell to the right, up, up and to the right, and down and to the right
+        private final int[] shifts;
+        long o;
+        long x;
+
+        Packed(Geometry geometry) {
+            super(geometry);
+            lines = geometry.lineMasks();
+            shifts = new int[] {geometry.h1, 1, geometry.h1 + 1, geometry.h1 - 1};
+        }
+
+        @Override
+        boolean has(int bit, boolean player) {
+            return ((player ? o : x) >>> bit & 1) != 0;
+        }
+
+        @Override
+        void set(int bit, boolean player) {
+            if (player) {
+                o |= 1L << bit;
+            } else {
+                x |= 1L << bit;
+            }
+        }
+
+        @Override
+        void clear(int bit, boolean player) {
+            if (player) {
+                o &= ~(1L << bit);
+            } else {
+                x &= ~(1L << bit);
+            }
+        }
+
+        @Override
+        public boolean isWin(boolean player) {
+            long pieces = player ? o : x;
+            for (int shift : shifts) {
+                long run = pieces;
+                for (int k = 1; k < geometry.n && run != 0; k++) {
+                    run &= k * shift < 64 ? pieces >>> (k * shift) : 0;
+                }
+                if (run != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        int countLines(int[] counts) {
+            int n = geometry.n;
+            int result = 0;
+            int twoO = 0, threeO = 0, twoX = 0, threeX = 0;
+            for (long line : lines) {
+                int countO = Long.bitCount(o & line);
+                int countX = Long.bitCount(x & line);
+                if (countX == 0) {
+                    if (countO == n - 2) {
+                        twoO++;
+                    } else if (countO == n - 1) {
+                        threeO++;
+                    } else if (countO == n) {
+                        result = 1;
+                    }
+                } else if (countO == 0) {
+                    if (countX == n - 2) {
+                        twoX++;
+                    } else if (countX == n - 1) {
+                        threeX++;
+                    } else if (countX == n && result == 0) {
+                        result = -1;
+                    }
+                }
+            }
+            counts[0] = twoO;
+            counts[1] = threeO;
+            counts[2] = twoX;
+            counts[3] = threeX;
+            return result;
+        }
+    }
+
+    //a board of more than 64 bits, each player's pieces in an array of longs
+    static final class Wide extends GridBoard {
+        final long[] o;
+        final long[] x;
+
+        Wide(Geometry geometry) {
+            super(geometry);
+            o = new long[(geometry.bits() + 63) / 64];
+            x = new long[o.length];
+        }
+
+        @Override
+        boolean has(int bit, boolean player) {
+            return ((player ? o : x)[bit >>> 6] >>> bit & 1) != 0;
+        }
+
+        @Override
+        void set(int bit, boolean player) {
+            (player ? o : x)[bit >>> 6] |= 1L << bit;
+        }
+
+        @Override
+        void clear(int bit, boolean player) {
+            (player ? o : x)[bit >>> 6] &= ~(1L << bit);
+        }
+
+        @Override
+        public boolean isWin(boolean player) {
+            for (int line = 0; line < geometry.lineCount(); line++) {
+                boolean whole = true;
+                for (int bit : geometry.line(line)) {
+                    if (!has(bit, player)) {
+                        whole = false;
+                        break;
+                    }
+                }
+                if (whole) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        int countLines(int[] counts) {
+            return countLinesByCells(counts);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package connect4;
+
+/*
+
+The eight walks over the String[][] board that Connect4 used for wins and for counting pieces in a row before LineScan, kept
+as they were so Benchmark lines can check LineScan against them. Nothing else uses them.
+
+They don't all agree with each other. The check methods find every four in a row. The count methods count runs of pieces
+rather than lines that can still be won, and their loop bounds leave cells out: countHorizontal and countDiagonalRight
+never count a run that reaches column 6, countDiagonalLeft never one that reaches column 0 and countVertical never one that
+reaches the top row. countHorizontal also stops at the first run in each row.
+
+*/
+
+class LegacyLines {
+    //check for a win horizontally and return true if found
+    static boolean checkForHorizontal(boolean player, String[][] board) {
+        int count;
+        boolean won = false;
+        for (int i = 5; i >= 0; i--) {
+            for (int j = 0; j < 4; j++) {
+                outerloop:
+                {
+                    count = 0;
+                    for (int k = j; k < (j + 4); k++) {
+                        if (player) {
+                            if (board[i][k].equals("O")) {
+                                count++;
+                                if (count == 4) {
+                                    won = true;
+                                    break;
+                                }
+                            } else {
+                                break outerloop;
+                            }
+                        } else {
+                            if (board[i][k].equals("X")) {
+                                count++;
+                                if (count == 4) {
+                                    won = true;
+                                    break;
+                                }
+                            } else {
+                                break outerloop;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return won;
+    }
+
+    //check for a win vertically and return true if found
+    static boolean checkForVertical(boolean player, String[][] board) {
+        int count;
+        boolean won = false;
+        for (int i = 5; i > 2; i--) {
+            for (int j = 0; j <= board.length; j++) {
+                outerloop:
+                {
+                    count = 0;
+                    for (int k = i; k > (i - 4); k--) {
+                        if (player) {
+                            if (board[k][j].equals("O")) {
+                                count++;
+                                if (count == 4) {
+                                    won = true;
+                                    break;
+                                }
+                            } else {
+                                break outerloop;
+                            }
+                        } else {
+                            if (board[k][j].equals("X")) {
+                                count++;
+                                if (count == 4) {
+                                    won = true;
+                                    break;
+                                }
+                            } else {
+                                break outerloop;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return won;
+    }
+
+    //sets up checkForDiangonalLeft and checkForDiangonalRight
+    static boolean checkForDiagonal(boolean player, String[][] board) {
+        if (checkForDiagonalRight(player, board) | checkForDiagonalLeft(player, board)) {
+            return true;
+        }
+        return false;
+    }
+
+    //Check for a win in the diagonal going upward and to the right. and return true if found
+    static boolean checkForDiagonalRight(boolean player, String[][] board) {
+        int count;
+        boolean won = false;
+        for (int i = 5; i >= 0; i--) {
+            for (int j = 0; j < 4; j++) {
+                outerloop:
+                {
+                    count = 0;
+                    for (int k = j; k < (j + 4); k++) {
+                        if (player) {
+                            if ((i - count) >= 0 && board[i - count][k].equals("O")) {
+                                count++;
+                                if (count == 4) {
+                                    won = true;
+                                    break;
+                                }
+                            } else {
+                                break outerloop;
+                            }
+                        } else {
+                            if ((i - count) >= 0 && board[i - count][k].equals("X")) {
+                                count++;
+                                if (count == 4) {
+                                    won = true;
+                                    break;
+                                }
+                            } else {
+                                break outerloop;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return won;
+    }
+
+    //check for a win in the diagonal going up and to the left. Returns true if found.
+    static boolean checkForDiagonalLeft(boolean player, String[][] board) {
+        int count;
+        boolean won = false;
+        for (int i = 5; i >= 0; i--) {
+            for (int j = 6; j > 2; j--) {
+                outerloop:
+                {
+                    count = 0;
+                    for (int k = j; k > (j - 4); k--) {
+                        if (player) {
+                            if ((i - count) >= 0 && board[i - count][k].equals("O")) {
+                                count++;
+                                if (count == 4) {
+                                    won = true;
+                                    break;
+                                }
+                            } else {
+                                break outerloop;
+                            }
+                        } else {
+                            if ((i - count) >= 0 && board[i - count][k].equals("X")) {
+                                count++;
+                                if (count == 4) {
+                                    won = true;
+                                    break;
+                                }
+                            } else {
+                                break outerloop;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return won;
+    }
+
+
+    //count how many in a row a player has. Returns the count of how many times it finds inARow of the same player.
+    static int countHorizontal(boolean player, String[][] board, int inARow) {
+        int count, value = 0;
+        for (int i = 5; i >= 0; i--) {
+            outerloop:
+            {
+                for (int j = 0; j < 7; j++) { //if the check would go out of the board go to the next row instead
+                    if ((j + inARow) > 6) {
+                        break outerloop;
+                    }
+                    count = 0;
+                    for (int k = j; k < (j + inARow); k++) {
+                        if (player) {
+                            if (board[i][k].equals("O")) {
+                                count++;
+                                if (count == inARow) {
+                                    value++;
+                                    j += inARow;//don't count the same one twice. For example three in a row as 2x two in a row
+                                    break outerloop;
+                                }
+                            }
+                        } else {
+                            if (board[i][k].equals("X")) {
+                                count++;
+                                if (count == inARow) {
+                                    value++;
+                                    j += inARow;
+                                    break outerloop;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    //count how many in a vertically continuously a player has. Returns the count of how many times it finds inARow of the same player.
+    static int countVertical(boolean player, String[][] board, int inARow) {
+        int count, value = 0;
+        for (int i = 5; i >= 0; i--) {
+            if ((i - inARow) < 0) break;
+            for (int j = 0; j < 7; j++) {
+
+                count = 0;
+                for (int k = i; k > (i - inARow); k--) {
+                    if (player) {
+                        if (board[k][j].equals("O")) {
+                            count++;
+                            if (count == inARow) {
+                                value++;
+
+                            }
+                        }
+                    } else {
+                        if (board[k][j].equals("X")) {
+                            count++;
+                            if (count == inARow) {
+                                value++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    //sets up countDiagonalRight and countDiagonalLeft.
+    static int countDiagonal(boolean player, String[][] board, int inARow) {
+        int value;
+        value = countDiagonalRight(player, board, inARow) + countDiagonalLeft(player, board, inARow);
+
+        return value;
+    }
+
+    //counts how many times a diagonal up and to right. Returns the count of how many times it finds inARow of the same player.
+    static int countDiagonalRight(boolean player, String[][] board, int inARow) {
+        int count, value = 0;
+        boolean won = false;
+        for (int i = 5; i >= 0; i--) {
+            outerloop:
+            {
+                for (int j = 0; j < 7; j++) { //if the check would go out of the board go to the next row instead
+                    if ((j + inARow) > 6) {
+                        break outerloop;
+                    }
+                    count = 0;
+                    for (int k = j; k < (j + inARow); k++) {
+                        if (player) {
+                            if ((i - count) >= 0 && board[i - count][k].equals("O")) {
+                                count++;
+                                if (count == inARow) {
+                                    value++;
+                                }
+                            }
+                        } else {
+                            if ((i - count) >= 0 && board[i - count][k].equals("X")) {
+                                count++;
+                                if (count == inARow) {
+                                    value++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    ////counts how many times a diagonal up and to left. Returns the count of how many times it finds inARow of the same player.
+    static int countDiagonalLeft(boolean player, String[][] board, int inARow) {
+        int count, value = 0;
+        boolean won = false;
+        for (int i = 5; i >= 0; i--) {
+            outerloop:
+            {
+                for (int j = 6; j > 0; j--) {
+                    if ((j - inARow) < 0) {//if the check would go out of the board go to the next row instead
+                        break outerloop;
+                    }
+                    count = 0;
+                    for (int k = j; k > (j - inARow); k--) {
+                        if (player) {
+                            if ((i - count) >= 0 && board[i - count][k].equals("O")) {
+                                count++;
+                                if (count == inARow) {
+                                    value++;
+                                }
+                            }
+                        } else {
+                            if ((i - count) >= 0 && board[i - count][k].equals("X")) {
+                                count++;
+                                if (count == inARow) {
+                                    value++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return value;
+    }
+}
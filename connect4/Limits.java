@@ -0,0 +1,66 @@
+package connect4;
+
+/*
+
+How much work Engine.bestMove can do for one move. A search goes to a fixed depth, or with a time limit it deepens until the
+time is up and depth is only the most it will go. Limits never change once made, the with methods return a copy.
+
+*/
+
+public final class Limits {
+    //deep enough to reach the end of any game
+    public static final int MAX_DEPTH = Bitboard.WIDTH * Bitboard.HEIGHT;
+
+    final int depth;
+    final long timeMs;
+    final boolean useBook;
+    //solve exactly once this many pieces are on the board, or never if -1
+    final int solveFrom;
+    final boolean orderFromPrevious;
+
+    private Limits(int depth, long timeMs, boolean useBook, int solveFrom, boolean orderFromPrevious) {
+        this.depth = depth;
+        this.timeMs = timeMs;
+        this.useBook = useBook;
+        this.solveFrom = solveFrom;
+        this.orderFromPrevious = orderFromPrevious;
+    }
+
+    //search to a fixed depth, the same depth play() asks for
+    public static Limits depth(int depth) {
+        return new Limits(depth, 0, true, -1, false);
+    }
+
+    //search as deep as timeMs milliseconds allow
+    public static Limits time(long timeMs) {
+        return new Limits(MAX_DEPTH, timeMs, true, -1, false);
+    }
+
+    public Limits withDepth(int depth) {
+        return new Limits(depth, timeMs, useBook, solveFrom, orderFromPrevious);
+    }
+
+    public Limits withTime(long timeMs) {
+        return new Limits(depth, timeMs, useBook, solveFrom, orderFromPrevious);
+    }
+
+    public Limits withBook(boolean useBook) {
+        return new Limits(depth, timeMs, useBook, solveFrom, orderFromPrevious);
+    }
+
+    public Limits withSolveFrom(int solveFrom) {
+        return new Limits(depth, timeMs, useBook, solveFrom, orderFromPrevious);
+    }
+
+    public Limits withOrderFromPrevious(boolean orderFromPrevious) {
+        return new Limits(depth, timeMs, useBook, solveFrom, orderFromPrevious);
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long timeMs() {
+        return timeMs;
+    }
+}
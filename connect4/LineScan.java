@@ -0,0 +1,136 @@
+package connect4;
+
+/*
+
+Everything the heuristic needs to know about the lines of a position, found in one pass over the 69 lines in Lines: whether
+either player has four in a row, and how many open twos and threes each player has. An open two or three is a line holding
+that many of a player's pieces and none of the other player's, so it can still become four.
+
+It replaces the eight walks over the String[][] board Connect4 used to have, one per direction for wins and one per direction
+for counting, each with its own loop bounds (see LegacyLines). A scan can be reused so scanning doesn't allocate.
+
+scanSwar finds the same counts without looking at the lines one at a time or branching on what they hold. All the lines going
+one way are handled at once: every line is kept on the bit of its first cell, and shifting a player's pieces by the step to
+the next cell 1, 2 and 3 times lines the four cells of every line up on that bit. Adding the four masks up bit by bit, like an
+adder circuit, gives a 1s and a 2s bit of the count on every bit, and a 4s bit, so the twos, threes and fours are masks and a
+bitCount counts them. Four directions, two players, 69 lines in about a hundred and fifty operations.
+
+*/
+
+public class LineScan {
+    //the step to the next cell of a line going up, right, up and to the right, and down and to the right, and the first cells
+    //of the lines going each way
+    private static final int[] STEPS = {1, Bitboard.H1, Bitboard.H1 + 1, Bitboard.H1 - 1};
+    private static final long[] STARTS = starts();
+
+    boolean winO, winX;
+    int twosO, threesO;
+    int twosX, threesX;
+
+    //scan the AI's pieces o and the human's pieces x, and return this scan
+    public LineScan scan(long o, long x) {
+        boolean wonO = false, wonX = false;
+        int twoO = 0, threeO = 0, twoX = 0, threeX = 0;
+        for (long line : Lines.LINES) {
+            int countO = Long.bitCount(o & line);
+            int countX = Long.bitCount(x & line);
+            if (countX == 0) {
+                if (countO == 2) {
+                    twoO++;
+                } else if (countO == 3) {
+                    threeO++;
+                } else if (countO == 4) {
+                    wonO = true;
+                }
+            } else if (countO == 0) {
+                if (countX == 2) {
+                    twoX++;
+                } else if (countX == 3) {
+                    threeX++;
+                } else if (countX == 4) {
+                    wonX = true;
+                }
+            }
+        }
+        winO = wonO;
+        winX = wonX;
+        twosO = twoO;
+        threesO = threeO;
+        twosX = twoX;
+        threesX = threeX;
+        return this;
+    }
+
+    public LineScan scan(Bitboard board) {
+        return scan(board.o, board.x);
+    }
+
+    //the same as scan, for all the lines of a direction at once
+    public LineScan scanSwar(long o, long x) {
+        int countsO = 0;
+        int countsX = 0;
+        for (int d = 0; d < STEPS.length; d++) {
+            countsO += countDirection(o, x, STEPS[d], STARTS[d]);
+            countsX += countDirection(x, o, STEPS[d], STARTS[d]);
+        }
+        twosO = countsO & 0xFF;
+        threesO = countsO >>> 8 & 0xFF;
+        winO = countsO >>> 16 != 0;
+        twosX = countsX & 0xFF;
+        threesX = countsX >>> 8 & 0xFF;
+        winX = countsX >>> 16 != 0;
+        return this;
+    }
+
+    //the lines starting on the bits of start and going step at a time that hold pieces of p: the twos and threes with
+    //nothing of q's in them, plus the threes << 8, plus the fours << 16
+    private static int countDirection(long p, long q, int step, long start) {
+        long p1 = p >>> step;
+        long p2 = p >>> 2 * step;
+        long p3 = p >>> 3 * step;
+        long open = start & ~(q | q >>> step | q >>> 2 * step | q >>> 3 * step);
+        //the count of the four bits is ones + 2 * (carry1 + carry2 + carry) and at most one of the carries is set unless
+        //all four are
+        long sum1 = p ^ p1;
+        long carry1 = p & p1;
+        long sum2 = p2 ^ p3;
+        long carry2 = p2 & p3;
+        long ones = sum1 ^ sum2;
+        long twos = carry1 ^ carry2 ^ (sum1 & sum2);
+        long fours = carry1 & carry2 & start;
+        return Long.bitCount(~ones & twos & open) + (Long.bitCount(ones & twos & open) << 8) + (Long.bitCount(fours) << 16);
+    }
+
+    public LineScan scanSwar(Bitboard board) {
+        return scanSwar(board.o, board.x);
+    }
+
+    public boolean isWin(boolean player) {
+        return player ? winO : winX;
+    }
+
+    //the open lines holding inARow (2 or 3) of the player's pieces
+    public int count(boolean player, int inARow) {
+        if (inARow == 2) {
+            return player ? twosO : twosX;
+        } else if (inARow == 3) {
+            return player ? threesO : threesX;
+        }
+        throw new IllegalArgumentException("Only twos and threes are counted, not " + inARow);
+    }
+
+    //the first cell of every line in Lines, by the direction it goes
+    private static long[] starts() {
+        long[] starts = new long[STEPS.length];
+        for (long line : Lines.LINES) {
+            int first = Long.numberOfTrailingZeros(line);
+            int step = Long.numberOfTrailingZeros(line & ~(1L << first)) - first;
+            for (int d = 0; d < STEPS.length; d++) {
+                if (STEPS[d] == step) {
+                    starts[d] |= 1L << first;
+                }
+            }
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,27 @@
+package connect4;
+
+/*
+
+Every line of four cells a player can win with, as bitboard masks in the same layout as Bitboard. There are 69 of them,
+24 horizontal, 21 vertical and 12 in each diagonal direction. CELL_LINES lists the lines going through each cell so a piece
+that was just placed only has to look at the (at most 13) lines it is part of instead of the whole board.
+
+Both are built from Geometry.STANDARD, which works out the lines of any board size.
+
+*/
+
+public class Lines {
+    public static final long[] LINES = Geometry.STANDARD.lineMasks();
+    public static final int COUNT = LINES.length;
+
+    //the indexes into LINES of the lines going through each bit of the board
+    public static final int[][] CELL_LINES = buildCellLines();
+
+    private static int[][] buildCellLines() {
+        int[][] cellLines = new int[Bitboard.WIDTH * Bitboard.H1][];
+        for (int bit = 0; bit < cellLines.length; bit++) {
+            cellLines[bit] = Geometry.STANDARD.linesThrough(bit);
+        }
+        return cellLines;
+    }
+}
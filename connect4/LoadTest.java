@@ -0,0 +1,174 @@
+package connect4;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+
+Plays many games against a GameServer at once and measures it. Every session starts a game and plays random columns until
+the game is over, and all of them run at the same time. Requests are sent asynchronously, so thousands of sessions don't
+need thousands of threads here. A move the server turns away with 503 is counted and sent again after a short wait.
+
+For each number of sessions it prints the games per second, the p50, p99 and slowest time from sending a move to getting the
+AI's reply, and how many moves were turned away.
+
+    java connect4.LoadTest [url=http://localhost:8080] [sessions=1000,10000] [deadlineMs=1000]
+
+Run the server in its own JVM: 10000 sessions take 10000 connections on each side.
+
+*/
+
+public class LoadTest {
+    private static final long RETRY_MILLIS = 50;
+
+    private final HttpClient client;
+    private final String url;
+    private final long deadlineMs;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public LoadTest(String url, long deadlineMs, ExecutorService executor) {
+        this.url = url;
+        this.deadlineMs = deadlineMs;
+        client = HttpClient.newBuilder().executor(executor).version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30)).build();
+    }
+
+    //one game and the time every one of its moves took
+    private class Session {
+        final Random random;
+        final long[] latencies = new long[Bitboard.WIDTH * Bitboard.HEIGHT];
+        int count;
+        String id;
+        Position position = Position.EMPTY;
+        int column;
+        long sent;
+
+        Session(long seed) {
+            random = new Random(seed);
+        }
+
+        CompletableFuture<Void> play() {
+            return send("POST", "/games").thenCompose(response -> {
+                id = value(response.body(), "id");
+                return nextMove();
+            });
+        }
+
+        private CompletableFuture<Void> nextMove() {
+            do {
+                column = random.nextInt(Bitboard.WIDTH);
+            } while (!position.canPlay(column));
+            return sendMove();
+        }
+
+        private CompletableFuture<Void> sendMove() {
+            sent = System.nanoTime();
+            return send("POST", "/games/" + id + "/move?column=" + column + "&deadlineMs=" + deadlineMs)
+                    .thenCompose(response -> {
+                        if (response.statusCode() == 503) {
+                            rejected.incrementAndGet();
+                            return CompletableFuture.runAsync(() -> { },
+                                    CompletableFuture.delayedExecutor(RETRY_MILLIS, TimeUnit.MILLISECONDS))
+                                    .thenCompose(ignored -> sendMove());
+                        }
+                        if (response.statusCode() != 200) {
+                            failed.incrementAndGet();
+                            return send("DELETE", "/games/" + id).thenApply(ignored -> null);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                        position = position.play(column);
+                        int move = Integer.parseInt(value(response.body(), "move"));
+                        if (move >= 0) {
+                            position = position.play(move);
+                        }
+                        if (!value(response.body(), "status").equals("playing")) {
+                            return send("DELETE", "/games/" + id).thenApply(ignored -> null);
+                        }
+                        return nextMove();
+                    });
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(String method, String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path)).timeout(Duration.ofSeconds(60))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    //the value of one key=value line of a response
+    static String value(String body, String key) {
+        for (String line : body.split("\n")) {
+            if (line.startsWith(key + "=")) {
+                return line.substring(key.length() + 1);
+            }
+        }
+        throw new IllegalStateException("No " + key + " in " + body);
+    }
+
+    //play sessions games at once and print what they measured
+    public void run(int sessions) {
+        rejected.set(0);
+        failed.set(0);
+        List<Session> all = new ArrayList<>();
+        List<CompletableFuture<Void>> games = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            Session session = new Session(i);
+            all.add(session);
+            games.add(session.play().exceptionally(e -> {
+                failed.incrementAndGet();
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(games.toArray(new CompletableFuture<?>[0])).join();
+        long elapsed = System.nanoTime() - start;
+
+        int moves = 0;
+        for (Session session : all) {
+            moves += session.count;
+        }
+        long[] latencies = new long[moves];
+        int filled = 0;
+        for (Session session : all) {
+            System.arraycopy(session.latencies, 0, latencies, filled, session.count);
+            filled += session.count;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%6d sessions: %8.1f games/s, %6d moves, move latency p50 %6.1f ms, p99 %7.1f ms, max %7.1f ms,"
+                        + " %d turned away, %d failed%n", sessions, sessions * 1e9 / elapsed, moves,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0), rejected.get(),
+                failed.get());
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    public static void main(String[] args) {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        String sessions = args.length > 1 ? args[1] : "1000,10000";
+        long deadlineMs = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        ExecutorService executor = GameServer.handlerExecutor();
+        LoadTest test = new LoadTest(url, deadlineMs, executor);
+        for (String count : sessions.split(",")) {
+            test.run(Integer.parseInt(count.trim()));
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,240 @@
+package connect4;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+
+A hash map from long keys to int values for caches of positions, keyed by Bitboard.key() or canonicalKey(). A key is one
+long of 49 bits, where a String[][] board would be 42 references and a deep equals and hashCode, and nothing is boxed, so an
+entry is 12 bytes plus the free slots, against about a hundred for a HashMap<String, Integer> (see Benchmark maps).
+
+It is open addressing with linear probing: a key's slot comes from a multiplicative hash of it, and a key that finds its slot
+taken goes to the next free one. Stored keys have 1 added so a slot of 0 is free and a new table needs no filling, which is
+why keys can't be negative. The table doubles when it gets three quarters full. There is no remove, caches only add and
+clear.
+
+of() picks where the slots are kept:
+
+    on the heap, a long[] of keys and an int[] of values.
+    off the heap, in a direct ByteBuffer of 12 byte slots, so a big cache doesn't add to the heap or to the garbage
+    collector's work. It is freed when the map is garbage collected.
+
+Both give the same answers. Neither is safe to change from more than one thread.
+
+*/
+
+public abstract class LongIntMap {
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private static final int MIN_CAPACITY = 16;
+
+    int size;
+    int capacity;
+    int shift;
+
+    LongIntMap(int capacity) {
+        setCapacity(capacity);
+    }
+
+    //a map with room for expected keys before it has to grow, on the heap or off it
+    public static LongIntMap of(int expected, boolean offHeap) {
+        long needed = Math.max(MIN_CAPACITY, (long) expected * 4 / 3 + 1);
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Too many keys for one map: " + expected);
+        }
+        int capacity = Integer.highestOneBit((int) needed - 1) << 1;
+        return offHeap ? new Direct(capacity) : new Heap(capacity);
+    }
+
+    //the stored key of a slot, 0 if it's free
+    abstract long keyAt(int slot);
+
+    abstract int valueAt(int slot);
+
+    abstract void set(int slot, long key, int value);
+
+    abstract void setValue(int slot, int value);
+
+    //make new empty slots, the old ones are still there until the new ones are set
+    abstract void allocate(int capacity);
+
+    //the bytes the slots take
+    public abstract long bytes();
+
+    private void setCapacity(int capacity) {
+        this.capacity = capacity;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private int slotOf(long stored) {
+        return (int) ((stored * GOLDEN) >>> shift);
+    }
+
+    //the slot holding a key, or the free slot where it would go
+    private int find(long stored) {
+        int mask = capacity - 1;
+        int slot = slotOf(stored);
+        long found;
+        while ((found = keyAt(slot)) != 0 && found != stored) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long stored(long key) {
+        if (key < 0 || key == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Keys can't be negative: " + key);
+        }
+        return key + 1;
+    }
+
+    //the value of a key, or missing if it isn't there
+    public int get(long key, int missing) {
+        int slot = find(stored(key));
+        return keyAt(slot) != 0 ? valueAt(slot) : missing;
+    }
+
+    public boolean containsKey(long key) {
+        return keyAt(find(stored(key))) != 0;
+    }
+
+    //set the value of a key, adding it if it isn't there
+    public void put(long key, int value) {
+        long stored = stored(key);
+        int slot = find(stored);
+        if (keyAt(slot) != 0) {
+            setValue(slot, value);
+            return;
+        }
+        if ((size + 1) * 4L > capacity * 3L) {
+            grow();
+            slot = find(stored);
+        }
+        set(slot, stored, value);
+        size++;
+    }
+
+    private void grow() {
+        if (capacity == 1 << 30) {
+            throw new IllegalStateException("The map can't grow past " + capacity + " slots");
+        }
+        int oldCapacity = capacity;
+        long[] keys = new long[size];
+        int[] values = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            if (keyAt(slot) != 0) {
+                keys[count] = keyAt(slot);
+                values[count++] = valueAt(slot);
+            }
+        }
+        allocate(oldCapacity * 2);
+        setCapacity(oldCapacity * 2);
+        for (int i = 0; i < count; i++) {
+            set(find(keys[i]), keys[i], values[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    //empty the map, keeping its size
+    public void clear() {
+        allocate(capacity);
+        size = 0;
+    }
+
+    //the slots on the heap
+    static final class Heap extends LongIntMap {
+        private long[] keys;
+        private int[] values;
+
+        Heap(int capacity) {
+            super(capacity);
+            allocate(capacity);
+        }
+
+        @Override
+        long keyAt(int slot) {
+            return keys[slot];
+        }
+
+        @Override
+        int valueAt(int slot) {
+            return values[slot];
+        }
+
+        @Override
+        void set(int slot, long key, int value) {
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        @Override
+        void setValue(int slot, int value) {
+            values[slot] = value;
+        }
+
+        @Override
+        void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        @Override
+        public long bytes() {
+            return capacity * 12L;
+        }
+    }
+
+    //the slots in a direct buffer, the key in the first 8 bytes of a slot and the value in the last 4
+    static final class Direct extends LongIntMap {
+        private static final int SLOT_BYTES = 12;
+
+        private ByteBuffer slots;
+
+        Direct(int capacity) {
+            super(capacity);
+            allocate(capacity);
+        }
+
+        @Override
+        long keyAt(int slot) {
+            return slots.getLong(slot * SLOT_BYTES);
+        }
+
+        @Override
+        int valueAt(int slot) {
+            return slots.getInt(slot * SLOT_BYTES + 8);
+        }
+
+        @Override
+        void set(int slot, long key, int value) {
+            slots.putLong(slot * SLOT_BYTES, key);
+            slots.putInt(slot * SLOT_BYTES + 8, value);
+        }
+
+        @Override
+        void setValue(int slot, int value) {
+            slots.putInt(slot * SLOT_BYTES + 8, value);
+        }
+
+        @Override
+        void allocate(int capacity) {
+            if ((long) capacity * SLOT_BYTES > Integer.MAX_VALUE) {
+                throw new IllegalStateException("A direct buffer can't hold " + capacity + " slots");
+            }
+            slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        }
+
+        @Override
+        public long bytes() {
+            return capacity * (long) SLOT_BYTES;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package connect4;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/*
+
+The AI's first few moves, worked out ahead of time. The board is nearly empty at the start so the heuristic has little to go
+on and the search is at its slowest, yet every game starts from the same handful of positions, so it is cheaper to search
+them once, deeply, and look the answers up.
+
+main() builds the book. Starting from the empty board, every position where it is the AI's turn is searched and its best
+move kept, then the book follows that move and every reply the human could make, up to a number of moves into the game.
+
+The file is an 8 byte magic number and version, then one long per position sorted by Bitboard.key(): the key shifted up
+8 bits with the column in the low 8. The book is memory mapped when it is opened and looked up with a binary search straight
+on the mapped file, so it is never copied onto the heap.
+
+A position and its mirror image only get one entry, under the lower of their two keys, with the column as it is in that
+position. lookup() flips the column back when it found the mirror image. Version 1 books kept both and can't be read.
+
+*/
+
+public class OpeningBook {
+    private static final int MAGIC = 0x43344248; //"C4BH"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+
+    private final MappedByteBuffer entries;
+    private final int count;
+
+    private OpeningBook(MappedByteBuffer entries, int count) {
+        this.entries = entries;
+        this.count = count;
+    }
+
+    //map a book file
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " isn't an opening book");
+            }
+            return new OpeningBook(buffer, (buffer.limit() - HEADER_BYTES) / 8);
+        }
+    }
+
+    //the number of positions in the book
+    public int size() {
+        return count;
+    }
+
+    //the book's column for a position, or -1 if it isn't in the book
+    public int lookup(Bitboard board) {
+        long key = board.key();
+        long mirroredKey = Bitboard.mirror(key);
+        boolean mirrored = mirroredKey < key;
+        if (mirrored) {
+            key = mirroredKey;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long entry = entries.getLong(HEADER_BYTES + middle * 8);
+            long entryKey = entry >>> 8;
+            if (entryKey < key) {
+                low = middle + 1;
+            } else if (entryKey > key) {
+                high = middle - 1;
+            } else {
+                int column = (int) (entry & 0xFF);
+                return mirrored ? Bitboard.WIDTH - 1 - column : column;
+            }
+        }
+        return -1;
+    }
+
+    //search every position the AI can reach in its first moves up to maxMoves pieces on the board, and return the sorted
+    //entries
+    public static long[] generate(int maxMoves, int depth) {
+        Search search = new Search(false, new TranspositionTable(256));
+        HashSet<Long> seen = new HashSet<>();
+        long[] entries = new long[1024];
+        int count = 0;
+        ArrayDeque<Bitboard> queue = new ArrayDeque<>();
+        //the human moves first, so the AI's first positions are the empty board with each of the human's moves
+        for (int column = 0; column < Bitboard.WIDTH; column++) {
+            Bitboard board = new Bitboard();
+            board.makeMove(column);
+            queue.add(board);
+        }
+        while (!queue.isEmpty()) {
+            Bitboard board = queue.poll();
+            long key = board.key();
+            long mirroredKey = Bitboard.mirror(key);
+            if (board.moves >= maxMoves || !seen.add(Math.min(key, mirroredKey))) {
+                continue;
+            }
+            int move = search.bestMove(board, depth);
+            if (move < 0) {
+                continue;
+            }
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            if (mirroredKey < key) {
+                entries[count++] = mirroredKey << 8 | (Bitboard.WIDTH - 1 - move);
+            } else {
+                entries[count++] = key << 8 | move;
+            }
+
+            //follow the book move and every reply, unless the game is over
+            Bitboard next = new Bitboard(board);
+            next.makeMove(move);
+            if (next.isWin(true) || next.isFull()) {
+                continue;
+            }
+            for (int column = 0; column < Bitboard.WIDTH; column++) {
+                if (!next.isFull(column)) {
+                    Bitboard reply = new Bitboard(next);
+                    reply.makeMove(column);
+                    if (!reply.isWin(false)) {
+                        queue.add(reply);
+                    }
+                }
+            }
+        }
+        entries = Arrays.copyOf(entries, count);
+        Arrays.sort(entries);
+        return entries;
+    }
+
+    //write sorted entries to a book file
+    public static void write(Path file, long[] entries) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (long entry : entries) {
+                out.writeLong(entry);
+            }
+        }
+    }
+
+    //java connect4.OpeningBook <file> [moves] [depth] builds a book for the positions with fewer than moves pieces (10 by
+    //default), searching each one depth plies deep (10 by default)
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java connect4.OpeningBook <file> [moves] [depth]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        int maxMoves = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long start = System.nanoTime();
+        long[] entries = generate(maxMoves, depth);
+        write(file, entries);
+        System.out.println("Wrote " + entries.length + " positions (" + (HEADER_BYTES + entries.length * 8L) + " bytes) to "
+                + file + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
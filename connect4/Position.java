@@ -0,0 +1,100 @@
+package connect4;
+
+/*
+
+A Connect 4 position that never changes once it's made, for code that uses the AI through Engine. Playing a move gives back
+a new Position, so one position can be handed to any number of threads. Like Bitboard, "O" (true) is the AI and "X" (false)
+the human, the human moves first, and the side to move comes from how many pieces are on the board.
+
+*/
+
+public final class Position {
+    public static final Position EMPTY = new Position(0, 0);
+
+    private final long o;
+    private final long x;
+
+    private Position(long o, long x) {
+        this.o = o;
+        this.x = x;
+    }
+
+    //the position after the columns played so far, e.g. "3342"
+    public static Position fromMoves(String moves) {
+        return of(Bitboard.fromMoves(moves));
+    }
+
+    //a snapshot of a bitboard
+    public static Position of(Bitboard board) {
+        return new Position(board.o, board.x);
+    }
+
+    //the position after the player whose turn it is plays a column
+    public Position play(int column) {
+        if (!canPlay(column)) {
+            throw new IllegalArgumentException("Column " + column + " can't be played");
+        }
+        long move = ((o | x) + Bitboard.BOTTOM) & Solver.columnMask(column);
+        return sideToMove() ? new Position(o | move, x) : new Position(o, x | move);
+    }
+
+    //returns true if the column is on the board and isn't full
+    public boolean canPlay(int column) {
+        return column >= 0 && column < Bitboard.WIDTH && ((o | x) & Bitboard.cell(column, Bitboard.HEIGHT - 1)) == 0;
+    }
+
+    public boolean sideToMove() {
+        return (moves() & 1) == 1;
+    }
+
+    public int moves() {
+        return Long.bitCount(o | x);
+    }
+
+    public boolean isWin(boolean player) {
+        return Bitboard.hasFour(player ? o : x);
+    }
+
+    //returns true if someone has won or the board is full
+    public boolean isGameOver() {
+        return isWin(true) || isWin(false) || moves() == Bitboard.WIDTH * Bitboard.HEIGHT;
+    }
+
+    public long key() {
+        return o + (o | x);
+    }
+
+    //a new bitboard with this position on it
+    public Bitboard toBitboard() {
+        return new Bitboard(o, x);
+    }
+
+    //a new bitboard with the players' pieces swapped, so the human's pieces are "O"
+    Bitboard toSwappedBitboard() {
+        return new Bitboard(x, o);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Position && ((Position) other).o == o && ((Position) other).x == x;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key());
+    }
+
+    //the board drawn the same way Connect4 prints it
+    @Override
+    public String toString() {
+        Bitboard board = toBitboard();
+        StringBuilder text = new StringBuilder();
+        for (int row = Bitboard.HEIGHT - 1; row >= 0; row--) {
+            for (int column = 0; column < Bitboard.WIDTH; column++) {
+                text.append('|').append(board.get(column, row));
+            }
+            text.append("|\n");
+        }
+        return text.toString();
+    }
+}
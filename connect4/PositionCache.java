@@ -0,0 +1,486 @@
+package connect4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/*
+
+Search results kept on disk from one run to the next, so a deep search of a common position only has to be done once. Every
+entry is a position where the AI is to move, with the depth it was searched to, its score and the move picked. Like the
+opening book a position and its mirror image share one entry, under the lower of their two keys (Bitboard.key()).
+
+The cache is a directory of two kinds of files, numbered by generation:
+
+    log-<g>.log     new entries, appended as they come. Every record is the key, the entry and a CRC32 of both.
+    index-<g>.idx   every entry from the logs before generation g, sorted by key and memory mapped like the opening book.
+                    The header holds a magic number, the version, the number of entries and a CRC32 of them.
+
+store() only hands the entry to a single writer thread and returns, so the search never waits for the disk. If the writer is
+too far behind the entry is dropped, it's only a cache. Every compactEvery records the writer starts the next log and merges
+the last index with everything logged since into the next index. When there are more than maxEntries entries the shallowest
+are left out, since they are the cheapest to search again, so the index never grows past maxEntries and the log never past
+compactEvery records. A record that fails to write is dropped and whatever part of it got written is cut back off the log (or
+when that fails too the writer goes on in the next log), so the records after it aren't lost with it. A compaction that fails
+is counted and the cache goes on with the index and logs it had.
+
+Nothing is ever written over. The next index is written to a temporary file and renamed into place once it's on disk, and the
+old files are only deleted after that. So wherever the process is killed, open() finds the newest index whose CRC is right,
+deletes what it already covers and reads the logs after it, stopping at the first record that was only partly written or
+whose CRC doesn't match and cutting the log off there.
+
+An entry is only as good as the heuristic that scored it, so a cache is for engines that all use the same weights.
+
+*/
+
+public class PositionCache {
+    private static final int MAGIC = 0x43345043; //"C4PC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+    private static final int RECORD_BYTES = 20;
+
+    //what lookup returns for a position that isn't in the cache
+    public static final long MISS = 0;
+    //set in every entry so that no entry is MISS
+    private static final long PRESENT = 1L << 16;
+
+    //the index and the entries logged since it was written, replaced together by compaction
+    private static final class State {
+        final MappedByteBuffer index;
+        final int count;
+        final int generation;
+        final ConcurrentHashMap<Long, Long> logged;
+
+        State(MappedByteBuffer index, int count, int generation, ConcurrentHashMap<Long, Long> logged) {
+            this.index = index;
+            this.count = count;
+            this.generation = generation;
+            this.logged = logged;
+        }
+    }
+
+    private final Path directory;
+    private final int maxEntries;
+    private final int compactEvery;
+    private final ThreadPoolExecutor writer;
+    private volatile State state;
+
+    //only used on the writer thread
+    private FileChannel log;
+    private int logGeneration;
+    private int logRecords;
+    //a failed write left part of a record at the end of the log and it couldn't be cut off
+    private boolean logBroken;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+
+    final AtomicLong stored = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+    final AtomicLong failedCompactions = new AtomicLong();
+
+    private PositionCache(Path directory, int maxEntries, int compactEvery) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.compactEvery = compactEvery;
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4096), task -> {
+            Thread thread = new Thread(task, "position-cache-writer");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, executor) -> dropped.incrementAndGet());
+    }
+
+    //open the cache in a directory, making it if there isn't one, and recover whatever the last run left behind
+    public static PositionCache open(Path directory, int maxEntries) throws IOException {
+        PositionCache cache = new PositionCache(directory, maxEntries, Math.max(1024, maxEntries / 8));
+        Files.createDirectories(directory);
+        cache.recover();
+        return cache;
+    }
+
+    private void recover() throws IOException {
+        TreeMap<Integer, Path> indexes = new TreeMap<>();
+        TreeMap<Integer, Path> logs = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                } else if (name.startsWith("index-") && name.endsWith(".idx")) {
+                    putGeneration(indexes, name.substring(6, name.length() - 4), file);
+                } else if (name.startsWith("log-") && name.endsWith(".log")) {
+                    putGeneration(logs, name.substring(4, name.length() - 4), file);
+                }
+            }
+        }
+
+        //the newest index that is whole, anything older is covered by it
+        MappedByteBuffer index = null;
+        int generation = 0;
+        for (int g : indexes.descendingKeySet()) {
+            index = mapIndex(indexes.get(g));
+            if (index != null) {
+                generation = g;
+                break;
+            }
+        }
+        for (int g : indexes.keySet()) {
+            if (g != generation) {
+                deleteQuietly(indexes.get(g));
+            }
+        }
+        ConcurrentHashMap<Long, Long> logged = new ConcurrentHashMap<>();
+        for (int g : logs.keySet()) {
+            if (g < generation) {
+                deleteQuietly(logs.get(g));
+            } else {
+                logRecords += replay(logs.get(g), logged);
+            }
+        }
+        logGeneration = logs.isEmpty() ? generation : Math.max(generation, logs.lastKey());
+        log = FileChannel.open(logFile(logGeneration), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        state = new State(index, index == null ? 0 : index.getInt(8), generation, logged);
+    }
+
+    //add a file under its generation, leaving alone a file whose name only looks like the cache's
+    private static void putGeneration(TreeMap<Integer, Path> files, String generation, Path file) {
+        try {
+            int g = Integer.parseInt(generation);
+            if (g >= 0 && generation.equals(Integer.toString(g))) {
+                files.put(g, file);
+            }
+        } catch (NumberFormatException e) {
+            //not one of the cache's files
+        }
+    }
+
+    //map an index file, or return null if it isn't a whole index
+    private static MappedByteBuffer mapIndex(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int count = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || count < 0
+                    || size != HEADER_BYTES + (long) count * ENTRY_BYTES) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(HEADER_BYTES));
+            return (int) crc.getValue() == buffer.getInt(12) ? buffer : null;
+        }
+    }
+
+    //read a log's records into logged, cutting it off at the first one that isn't whole. Returns the records read.
+    private int replay(Path file, ConcurrentHashMap<Long, Long> logged) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            int records = 0;
+            CRC32 check = new CRC32();
+            while (buffer.remaining() >= RECORD_BYTES) {
+                int start = buffer.position();
+                check.reset();
+                check.update(buffer.duplicate().limit(start + 16));
+                long key = buffer.getLong();
+                long entry = buffer.getLong();
+                if ((int) check.getValue() != buffer.getInt()) {
+                    buffer.position(start);
+                    break;
+                }
+                logged.merge(key, entry, PositionCache::deeper);
+                records++;
+            }
+            if (buffer.position() < channel.size()) {
+                channel.truncate(buffer.position());
+            }
+            return records;
+        }
+    }
+
+    //the entry for the AI to move in this position, with the move as it is in this position, or MISS
+    public long lookup(Bitboard board) {
+        long key = board.key();
+        long mirroredKey = Bitboard.mirror(key);
+        boolean mirrored = mirroredKey < key;
+        long entry = find(mirrored ? mirroredKey : key);
+        if (entry == MISS || !mirrored) {
+            return entry;
+        }
+        return entry & ~0xFFL | (Bitboard.WIDTH - 1 - move(entry));
+    }
+
+    private long find(long key) {
+        State current = state;
+        Long logged = current.logged.get(key);
+        if (logged != null) {
+            return logged;
+        }
+        int low = 0;
+        int high = current.count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long entryKey = current.index.getLong(HEADER_BYTES + middle * ENTRY_BYTES);
+            if (entryKey < key) {
+                low = middle + 1;
+            } else if (entryKey > key) {
+                high = middle - 1;
+            } else {
+                return current.index.getLong(HEADER_BYTES + middle * ENTRY_BYTES + 8);
+            }
+        }
+        return MISS;
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    public static int move(long entry) {
+        return (int) entry & 0xFF;
+    }
+
+    //keep a search result for the AI to move in this position, unless the cache already has one at least as deep. Returns
+    //straight away, the entry is written by the writer thread.
+    public void store(Bitboard board, int depth, int score, int move) {
+        long key = board.key();
+        long mirroredKey = Bitboard.mirror(key);
+        if (mirroredKey < key) {
+            key = mirroredKey;
+            move = Bitboard.WIDTH - 1 - move;
+        }
+        long entry = (long) score << 32 | PRESENT | depth << 8 | move;
+        long old = find(key);
+        if (old != MISS && depth(old) >= depth) {
+            return;
+        }
+        long canonicalKey = key;
+        writer.execute(() -> append(canonicalKey, entry));
+    }
+
+    //of two entries for one position, the one searched deeper
+    private static long deeper(long a, long b) {
+        return depth(b) > depth(a) ? b : a;
+    }
+
+    private void append(long key, long entry) {
+        record.clear();
+        record.putLong(key).putLong(entry);
+        crc.reset();
+        crc.update(record.array(), 0, 16);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        long size = -1;
+        try {
+            if (logBroken) {
+                startNextLog();
+                logBroken = false;
+            }
+            size = log.size();
+            while (record.hasRemaining()) {
+                log.write(record);
+            }
+        } catch (IOException e) {
+            dropped.incrementAndGet();
+            if (size >= 0) {
+                cutBack(size);
+            }
+            return;
+        }
+        state.logged.merge(key, entry, PositionCache::deeper);
+        stored.incrementAndGet();
+        if (++logRecords >= compactEvery) {
+            compactCounted();
+        }
+    }
+
+    //cut what a failed write left of a record off the end of the log, or else go on in the next log, so open() doesn't cut
+    //the records after it off with it
+    private void cutBack(long size) {
+        try {
+            log.truncate(size);
+        } catch (IOException e) {
+            try {
+                startNextLog();
+            } catch (IOException again) {
+                logBroken = true;
+            }
+        }
+    }
+
+    //merge everything logged so far into a new index, after the entries already waiting to be written
+    public void compact() {
+        writer.execute(this::compactCounted);
+    }
+
+    private void compactCounted() {
+        try {
+            compactNow();
+        } catch (IOException e) {
+            failedCompactions.incrementAndGet();
+        }
+    }
+
+    //from here on new entries go to the log of the next generation
+    private void startNextLog() throws IOException {
+        int generation = logGeneration + 1;
+        FileChannel nextLog = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        log.close();
+        log = nextLog;
+        logGeneration = generation;
+    }
+
+    private void compactNow() throws IOException {
+        State current = state;
+        //the new index doesn't cover the next log
+        startNextLog();
+        int generation = logGeneration;
+        logRecords = 0;
+
+        long[] keys = new long[current.count + current.logged.size()];
+        long[] entries = new long[keys.length];
+        int count = merge(current, keys, entries);
+        count = evict(keys, entries, count);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * ENTRY_BYTES);
+        buffer.position(HEADER_BYTES);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(keys[i]).putLong(entries[i]);
+        }
+        CRC32 check = new CRC32();
+        check.update(buffer.array(), HEADER_BYTES, count * ENTRY_BYTES);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, count).putInt(12, (int) check.getValue());
+        buffer.rewind();
+        Path temporary = directory.resolve("index-" + generation + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Path index = indexFile(generation);
+        Files.move(temporary, index, StandardCopyOption.ATOMIC_MOVE);
+
+        state = new State(mapIndex(index), count, generation, new ConcurrentHashMap<>());
+        //the new index covers these now. On Windows a file that is still mapped can't be deleted, open() tries again.
+        deleteQuietly(indexFile(current.generation));
+        for (int g = current.generation; g < generation; g++) {
+            deleteQuietly(logFile(g));
+        }
+    }
+
+    //the index's entries and the logged ones in key order, the deeper one where a key is in both. Returns how many.
+    private static int merge(State state, long[] keys, long[] entries) {
+        long[] loggedKeys = new long[state.logged.size()];
+        int n = 0;
+        for (long key : state.logged.keySet()) {
+            if (n < loggedKeys.length) {
+                loggedKeys[n++] = key;
+            }
+        }
+        Arrays.sort(loggedKeys, 0, n);
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < state.count || j < n) {
+            long indexKey = i < state.count ? state.index.getLong(HEADER_BYTES + i * ENTRY_BYTES) : Long.MAX_VALUE;
+            long loggedKey = j < n ? loggedKeys[j] : Long.MAX_VALUE;
+            if (indexKey < loggedKey) {
+                keys[count] = indexKey;
+                entries[count++] = state.index.getLong(HEADER_BYTES + i++ * ENTRY_BYTES + 8);
+            } else {
+                long entry = state.logged.get(loggedKey);
+                if (indexKey == loggedKey) {
+                    entry = deeper(state.index.getLong(HEADER_BYTES + i++ * ENTRY_BYTES + 8), entry);
+                }
+                keys[count] = loggedKey;
+                entries[count++] = entry;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    //leave out the shallowest entries until there are at most maxEntries, keeping them in key order. Returns how many are left.
+    private int evict(long[] keys, long[] entries, int count) {
+        if (count <= maxEntries) {
+            return count;
+        }
+        int[] atDepth = new int[256];
+        for (int i = 0; i < count; i++) {
+            atDepth[depth(entries[i])]++;
+        }
+        //keep every entry deeper than cut, and as many at cut as there is room for
+        int cut = atDepth.length - 1;
+        int kept = atDepth[cut];
+        while (kept + atDepth[cut - 1] <= maxEntries) {
+            kept += atDepth[--cut];
+        }
+        int roomAtCut = maxEntries - kept;
+        cut--;
+        int left = 0;
+        for (int i = 0; i < count; i++) {
+            int depth = depth(entries[i]);
+            if (depth > cut || (depth == cut && roomAtCut-- > 0)) {
+                keys[left] = keys[i];
+                entries[left++] = entries[i];
+            }
+        }
+        return left;
+    }
+
+    private Path logFile(int generation) {
+        return directory.resolve("log-" + generation + ".log");
+    }
+
+    private Path indexFile(int generation) {
+        return directory.resolve("index-" + generation + ".idx");
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            //left for the next open() to delete
+        }
+    }
+
+    //about the number of entries in the cache, a position logged again since the index was written is counted twice
+    public int size() {
+        State current = state;
+        return current.count + current.logged.size();
+    }
+
+    //write out the entries still waiting and close the log
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+}
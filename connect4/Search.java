@@ -0,0 +1,734 @@
+package connect4;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+
+The AI's search. The AI is always "O" (player == true) and is the maximizing player, the human is "X" and minimizes, and
+every score is from the AI's point of view like Connect4's heuristic. minimax is the plain search the game started with and is
+kept so the pruned search can be compared with it. alphaBeta skips the children that can't change the result, trying the
+middle columns first because they are usually the best moves and the earlier a good move is found the more gets skipped.
+
+Both searches count the positions they visit so the work saved by the pruning can be printed after each move. The counters
+are plain fields of the Search, so counting costs next to nothing. Worker threads count in their own Search and the counts
+are added up once the root search is done. bestMove and bestMoveInTime also keep the time and positions for every depth they
+finish, and SearchMetrics takes a copy of all of it once the move is picked.
+
+alphaBeta can also keep a transposition table. Every position it finishes is stored with its score, the depth it was searched
+to and whether the score is exact or only a bound, and the move that did best. When the same position comes up again the
+stored score is used if it was searched at least as deep, and otherwise the stored move is at least tried first.
+
+The search doesn't copy the board for every child. It plays each move on one working position and takes it back afterwards,
+and the order it tries the moves in is written into a buffer made once per number of pieces on the board, so once a Search is
+made it doesn't allocate anything. allocatedBytes is how much the last search allocated, which should stay at 0.
+
+Leaves are scored by an Evaluator that follows the moves as they're played and taken back, so scoring a leaf doesn't mean
+looking at the whole board again. With swarLeaves the evaluator is left alone while moves are played and every leaf is scored
+from scratch with LineScan.scanSwar instead, which gives the same scores.
+
+With more than one thread the root is split up ("young brothers wait"). The first column in the move order is searched here
+with a full window, then the other columns are handed to a ForkJoinPool together, each one searched by its own worker Search
+with alpha one below the first column's score. Anything at least as good as the first column comes back with its exact score,
+so the move picked is still the lowest column with the highest score no matter which thread finishes first. A worker takes
+the root search's settings, table, deadline and stop() with every column it is handed, and starts over with its killers and
+history when a new search starts. The workers share the transposition table, which is safe without locks. With one thread
+there is no pool and nothing changes.
+
+A position and its mirror image have the same score, so the table stores them under the lower of the two hashes (see
+Bitboard), with the stored move flipped to match. When the position is its own mirror image only the columns up to the middle
+are searched, since the ones to the right score the same as their mirrors on the left, and the left one wins the tie at the
+root anyway. foldMirrors turns both off, to measure what they save.
+
+Below the root alphaBeta looks at the threats first (see Threats). If the side to move can win right away the position is
+scored as a win without trying any moves, and two plies or more from the leaves only the moves that don't let the other side
+win next are tried: the block when the other side has a winning cell it can play, and never the cell right under one of the
+other side's winning cells. A position where every move lets the other side win is scored as a loss. The moves left out score
+a loss anyway, one ply further down, so the scores and the move picked stay the ones minimax finds. useThreats turns it off,
+to measure what it saves.
+
+bestMoveInTime searches with a time limit instead of a fixed depth. It searches depth 0, then 1, 2 and so on, trying the last
+depth's best move first each time, and keeps the move from the deepest search that finished. The clock is checked every 1024
+positions. Once time is up the search unwinds straight away without storing anything in the table, and the unfinished
+depth is thrown away. stop() ends a search from another thread the same way, at the next check of the clock, which is how
+Engine cancels pondering.
+
+After the table's move, alphaBeta tries the killer moves first, the last two columns that cut the search off with the same
+number of pieces on the board, then the rest by their history, how much cutting off with a piece on that cell has been worth
+to that side (depth squared each time), keeping the centre-first order between equals. Ordering only changes how much is
+searched, not the scores. Both start empty for every search, unless a SearchMemory lends its own (useMemory), which keeps them
+along with a table and the principal variation for all the moves of a game. useHistory turns them off, to measure what they
+save.
+
+*/
+
+public class Search {
+    //middle columns first, moving outwards
+    public static final int[] CENTER_ORDER = {3, 2, 4, 1, 5, 0, 6};
+    public static final int NO_MOVE = TranspositionTable.NO_MOVE;
+
+    //mixed into the table key when the AI is to move, so a position searched with either side to move gets its own entry
+    private static final long SIDE = 0x9E3779B97F4A7C15L;
+    //the order killers go in before any history, and how high a history gets before all of them are halved
+    private static final int KILLER = 1 << 30;
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    //when true bestMove searches every depth up to the one asked for and tries the last depth's best move first
+    boolean orderFromPrevious = false;
+    //null when the search runs without a transposition table
+    TranspositionTable table;
+    //store mirror images under one entry and skip mirrored moves in symmetric positions
+    boolean foldMirrors = true;
+    //score won and lost positions from their threats and skip the moves that let the other side win next
+    boolean useThreats = true;
+    //score leaves with Evaluator.evaluate(Bitboard) instead of following the moves with the evaluator
+    boolean swarLeaves = Evaluator.SWAR;
+    //try the killer moves and the moves with the best history first
+    boolean useHistory = true;
+    //the move to try first at the root before a depth has found a best move, like a SearchMemory's principal variation
+    int firstMove = NO_MOVE;
+
+    //null when the search runs on one thread. Every pool thread gets its own worker Search, kept in workerList as well so
+    //their counters can be added up.
+    private ForkJoinPool pool;
+    //false when the pool is shared with other searches and belongs to whoever made it
+    private boolean ownsPool;
+    private ThreadLocal<Search> workers;
+    private final ConcurrentLinkedQueue<Search> workerList = new ConcurrentLinkedQueue<>();
+    //counts the searches started, so a worker knows when a new one has started and its killers and history are stale
+    private int searchNumber;
+    private int workerSearchNumber = -1;
+    //set by a worker whose column ran out of time, for the root search it was searching for
+    private volatile boolean childAborted;
+
+    //the position being searched and the order the moves are tried in for each number of pieces on the board
+    private final Bitboard position = new Bitboard();
+    private final int[][] moveBuffer = new int[Bitboard.WIDTH * Bitboard.HEIGHT + 1][Bitboard.WIDTH];
+    private final Evaluator evaluator = new Evaluator();
+    //two killer columns for every number of pieces on the board, and the history of every cell for "X" and then for "O".
+    //They are the search's own unless a SearchMemory lent its.
+    private final int[] ownKillers = SearchMemory.newKillers();
+    private final int[] ownHistory = SearchMemory.newHistory();
+    private int[] killers = ownKillers;
+    private int[] history = ownHistory;
+    //the history of each move in the order being sorted, for every number of pieces on the board
+    private final int[][] moveScores = new int[Bitboard.WIDTH * Bitboard.HEIGHT + 1][Bitboard.WIDTH];
+
+    long nodes;
+    long leaves;
+    long cutoffs;
+    long tableHits;
+    long tableMisses;
+    long tableCollisions;
+    long allocatedBytes;
+    int bestScore;
+
+    //the time limit as a System.nanoTime() value, and whether it was hit
+    long deadline = Long.MAX_VALUE;
+    boolean aborted;
+    //set by stop() from another thread, and cleared by the thread that searches before it starts
+    volatile boolean stopped;
+    //the search whose stop() ends this one too, the root search for a worker
+    private Search owner = this;
+    //for bestMoveInTime, the deepest depth that finished and how long the whole search took
+    int depthReached;
+    long timeUsedNanos;
+    //the depths the last search finished, with the time each one took and the positions it searched
+    final int[] searchedDepths = new int[Bitboard.WIDTH * Bitboard.HEIGHT + 1];
+    final long[] depthNanos = new long[searchedDepths.length];
+    final long[] depthNodes = new long[searchedDepths.length];
+    int depthsSearched;
+
+    public Search() {
+    }
+
+    public Search(boolean orderFromPrevious) {
+        this.orderFromPrevious = orderFromPrevious;
+    }
+
+    public Search(boolean orderFromPrevious, TranspositionTable table) {
+        this.orderFromPrevious = orderFromPrevious;
+        this.table = table;
+    }
+
+    //a search that splits the root over threads, all sharing the table
+    public Search(boolean orderFromPrevious, TranspositionTable table, int threads) {
+        this(orderFromPrevious, table, threads > 1 ? new ForkJoinPool(threads) : null);
+        ownsPool = pool != null;
+    }
+
+    //a search that splits the root over a pool other searches may use too, like an Engine's, or on one thread if pool is
+    //null. The pool is left for its owner to shut down.
+    public Search(boolean orderFromPrevious, TranspositionTable table, ForkJoinPool pool) {
+        this(orderFromPrevious, table);
+        if (pool != null) {
+            this.pool = pool;
+            workers = ThreadLocal.withInitial(() -> {
+                Search worker = new Search(false, table);
+                workerList.add(worker);
+                return worker;
+            });
+        }
+    }
+
+    //score leaves with other weights than the heuristic's. A search with other weights needs a table of its own.
+    public void setWeights(Weights weights) {
+        evaluator.weights = weights;
+        for (Search worker : workerList) {
+            worker.evaluator.weights = weights;
+        }
+    }
+
+    //the number of threads the search uses
+    public int threads() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    //stop the pool threads. Only needed for searches with more than one thread that made their own pool.
+    public void shutdown() {
+        if (pool != null && ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    //end the search running on another thread, and its workers, as if its time was up. It keeps stopping every search until
+    //stopped is cleared.
+    public void stop() {
+        stopped = true;
+    }
+
+    //search with the killers and history of a game's memory, or the search's own again if memory is null. The table and
+    //firstMove are the caller's to set (see Engine).
+    public void useMemory(SearchMemory memory) {
+        killers = memory == null ? ownKillers : memory.killers;
+        history = memory == null ? ownHistory : memory.history;
+    }
+
+    //empty the killers and history before a search, unless they're a memory's
+    private void startSearch() {
+        searchNumber++;
+        if (killers == ownKillers) {
+            Arrays.fill(ownKillers, NO_MOVE);
+            Arrays.fill(ownHistory, 0);
+        }
+    }
+
+    //reset the counters before a new move
+    public void clearCounts() {
+        nodes = 0;
+        leaves = 0;
+        cutoffs = 0;
+        tableHits = 0;
+        tableMisses = 0;
+        tableCollisions = 0;
+    }
+
+    //the share of table probes that found their position
+    public double tableHitRate() {
+        long probes = tableHits + tableMisses;
+        return probes == 0 ? 0 : (double) tableHits / probes;
+    }
+
+    //pick the AI's move the way play() always has: every column is scored by searching depth more plies below it and the
+    //lowest column with the highest score wins. Returns -1 if every column is full, or if stop() ended the search.
+    public int bestMove(Bitboard board, int depth) {
+        long start = System.nanoTime();
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        clearCounts();
+        aborted = false;
+        position.copyFrom(board);
+        evaluator.reset(position);
+        startSearch();
+        depthsSearched = 0;
+        int best = -1;
+        for (int d = orderFromPrevious ? 0 : depth; d <= depth; d++) {
+            long depthStart = System.nanoTime();
+            long nodesBefore = nodes;
+            best = rootSearch(d, best < 0 ? firstMove : best);
+            if (aborted) {
+                best = -1;
+                break;
+            }
+            recordDepth(d, depthStart, nodesBefore);
+        }
+        timeUsedNanos = System.nanoTime() - start;
+        allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return best;
+    }
+
+    //search deeper and deeper until timeMs milliseconds are up or maxDepth is done, and return the move from the deepest
+    //search that finished. Depth 0 always finishes so there is always a move, unless every column is full or stop() ended the
+    //search before depth 0 was done, which return -1.
+    public int bestMoveInTime(Bitboard board, long timeMs, int maxDepth) {
+        long start = System.nanoTime();
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        clearCounts();
+        aborted = false;
+        position.copyFrom(board);
+        evaluator.reset(position);
+        startSearch();
+        //past this depth the board is full and searching deeper finds nothing new
+        int lastDepth = Math.min(maxDepth, Bitboard.WIDTH * Bitboard.HEIGHT - position.moves - 1);
+        int best = -1;
+        int score = Integer.MIN_VALUE;
+        depthReached = 0;
+        depthsSearched = 0;
+        for (int d = 0; d <= lastDepth; d++) {
+            deadline = d == 0 ? Long.MAX_VALUE : start + timeMs * 1000000;
+            long depthStart = System.nanoTime();
+            long nodesBefore = nodes;
+            int move = rootSearch(d, best < 0 ? firstMove : best);
+            if (aborted) {
+                break;
+            }
+            recordDepth(d, depthStart, nodesBefore);
+            best = move;
+            score = bestScore;
+            depthReached = d;
+        }
+        bestScore = score;
+        deadline = Long.MAX_VALUE;
+        aborted = false;
+        timeUsedNanos = System.nanoTime() - start;
+        allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return best;
+    }
+
+    //keep the time and positions of a depth that finished
+    private void recordDepth(int depth, long start, long nodesBefore) {
+        searchedDepths[depthsSearched] = depth;
+        depthNanos[depthsSearched] = System.nanoTime() - start;
+        depthNodes[depthsSearched] = nodes - nodesBefore;
+        depthsSearched++;
+    }
+
+    //returns true once the time limit has passed. Only looks at the clock every 1024 positions.
+    private boolean outOfTime() {
+        if ((nodes & 1023) == 0 && (stopped || owner.stopped || System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    //alpha-beta at the root. A column to the left of the best so far only has to tie it, so it is searched with alpha one
+    //below the best score, and a column to the right has to beat it. A score that can't do that comes back as a bound no
+    //higher than alpha, so the move picked and its score are the same ones minimax finds.
+    private int rootSearch(int depth, int firstMove) {
+        if (pool != null) {
+            return parallelRootSearch(depth, firstMove);
+        }
+        int best = -1;
+        bestScore = Integer.MIN_VALUE;
+        int[] order = moveBuffer[position.moves];
+        int count = orderMoves(firstMove, order);
+        for (int i = 0; i < count; i++) {
+            int column = order[i];
+            //ties go to the lower column, so a column left of the best only has to match its score
+            boolean winsTies = best == -1 || column < best;
+            int alpha = bestScore;
+            if (winsTies && bestScore != Integer.MIN_VALUE) {
+                alpha = bestScore - 1;
+            }
+            play(column, true);
+            int value = alphaBeta(depth, alpha, Integer.MAX_VALUE, false);
+            undo(column, true);
+            if (aborted) {
+                return best;
+            }
+            if (winsTies ? value >= bestScore : value > bestScore) {
+                best = column;
+                bestScore = value;
+            }
+        }
+        return best;
+    }
+
+    //the root split over the pool. The first column is searched on this thread with a full window, then the rest are
+    //searched together with alpha one below its score, so every column that could be picked gets its exact score.
+    private int parallelRootSearch(int depth, int firstMove) {
+        bestScore = Integer.MIN_VALUE;
+        int[] order = moveBuffer[position.moves];
+        int count = orderMoves(firstMove, order);
+        if (count == 0) {
+            return -1;
+        }
+        int best = order[0];
+        play(best, true);
+        bestScore = alphaBeta(depth, Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+        undo(best, true);
+        if (aborted) {
+            return best;
+        }
+
+        int alpha = bestScore == Integer.MIN_VALUE ? bestScore : bestScore - 1;
+        Bitboard root = new Bitboard(position);
+        childAborted = false;
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            int column = order[i];
+            tasks.add(pool.submit(() -> workers.get().searchChild(this, root, column, depth, alpha)));
+        }
+        for (int i = 1; i < count; i++) {
+            int column = order[i];
+            int value = tasks.get(i - 1).join();
+            if (value > bestScore || (value == bestScore && column < best)) {
+                best = column;
+                bestScore = value;
+            }
+        }
+        collectWorkerCounts();
+        aborted |= childAborted;
+        return best;
+    }
+
+    //score one of the AI's moves from a root position for parallelRootSearch, searched the way the root search is: with its
+    //settings, table and deadline, stopped by its stop(), and with fresh killers and history for each new search
+    private int searchChild(Search parent, Bitboard root, int column, int depth, int alpha) {
+        evaluator.weights = parent.evaluator.weights;
+        foldMirrors = parent.foldMirrors;
+        useThreats = parent.useThreats;
+        swarLeaves = parent.swarLeaves;
+        useHistory = parent.useHistory;
+        table = parent.table;
+        deadline = parent.deadline;
+        owner = parent;
+        stopped = false;
+        if (workerSearchNumber != parent.searchNumber) {
+            workerSearchNumber = parent.searchNumber;
+            startSearch();
+        }
+        aborted = false;
+        position.copyFrom(root);
+        evaluator.reset(position);
+        play(column, true);
+        int value = alphaBeta(depth, alpha, Integer.MAX_VALUE, false);
+        undo(column, true);
+        if (aborted) {
+            parent.childAborted = true;
+        }
+        return value;
+    }
+
+    //move what the workers counted over to this search
+    private void collectWorkerCounts() {
+        for (Search worker : workerList) {
+            nodes += worker.nodes;
+            leaves += worker.leaves;
+            cutoffs += worker.cutoffs;
+            tableHits += worker.tableHits;
+            tableMisses += worker.tableMisses;
+            tableCollisions += worker.tableCollisions;
+            worker.clearCounts();
+        }
+    }
+
+    //the score of every column for the AI, each one searched depth plies below with a full window so the score is exact
+    //rather than a bound, for grading moves (see GameAnalyzer). Full columns get Integer.MIN_VALUE. Returns the column
+    //bestMove picks, the lowest one with the highest score, or -1 if every column is full.
+    public int scoreColumns(Bitboard board, int depth, int[] scores) {
+        position.copyFrom(board);
+        evaluator.reset(position);
+        startSearch();
+        int best = -1;
+        for (int column = 0; column < Bitboard.WIDTH; column++) {
+            scores[column] = Integer.MIN_VALUE;
+            if (position.isFull(column)) {
+                continue;
+            }
+            play(column, true);
+            scores[column] = alphaBeta(depth, Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+            undo(column, true);
+            if (best == -1 || scores[column] > scores[best]) {
+                best = column;
+            }
+        }
+        bestScore = best < 0 ? Integer.MIN_VALUE : scores[best];
+        return best;
+    }
+
+    //the plain minimax root, the lowest column with the highest score
+    public int minimaxMove(Bitboard board, int depth) {
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        position.copyFrom(board);
+        evaluator.reset(position);
+        int best = -1;
+        bestScore = Integer.MIN_VALUE;
+        for (int column = 0; column < Bitboard.WIDTH; column++) {
+            if (position.isFull(column)) {
+                continue;
+            }
+            play(column, true);
+            int value = minimax(depth, false);
+            undo(column, true);
+            if (best == -1 || value > bestScore) {
+                best = column;
+                bestScore = value;
+            }
+        }
+        allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return best;
+    }
+
+    //This method follows the minimax algorithm covered in class and tutorial to find optimal moves. It searches the
+    //working position, which is changed while it's searched but is back the way it was when this returns.
+    private int minimax(int depth, boolean maximizingPlayer) {
+        Bitboard board = position;
+        nodes++;
+        //if the depth is 0 or the node is a terminal node (the player who just moved won or the board is full)
+        if (depth == 0 || board.isWin(!maximizingPlayer) || board.isFull()) {
+            leaves++;
+            return swarLeaves ? evaluator.evaluate(board) : evaluator.evaluate();
+        }
+
+        int value = maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int column = 0; column < Bitboard.WIDTH; column++) {
+            if (board.isFull(column)) {
+                continue;
+            }
+            play(column, maximizingPlayer);
+            if (maximizingPlayer) {
+                value = Math.max(value, minimax(depth - 1, false));
+            } else {
+                value = Math.min(value, minimax(depth - 1, true));
+            }
+            undo(column, maximizingPlayer);
+        }
+        return value;
+    }
+
+    //minimax with alpha-beta pruning. alpha is the score the AI is already sure of and beta the score the human is already
+    //sure of, once they cross the rest of the children can't be picked. The value returned is exact when it is between
+    //alpha and beta, otherwise it is only a bound on the real value. Like minimax the position is put back before returning.
+    private int alphaBeta(int depth, int alpha, int beta, boolean maximizingPlayer) {
+        Bitboard board = position;
+        nodes++;
+        if (depth == 0 || board.isWin(!maximizingPlayer) || board.isFull()) {
+            leaves++;
+            return swarLeaves ? evaluator.evaluate(board) : evaluator.evaluate();
+        }
+
+        //a win for the side to move, a loss when it can't stop the other side winning, or only the moves that don't lose
+        long allowed = Bitboard.BOARD;
+        if (useThreats) {
+            long mask = board.o | board.x;
+            long own = maximizingPlayer ? board.o : board.x;
+            if (Threats.immediateWins(own, mask) != 0) {
+                leaves++;
+                return maximizingPlayer ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+            }
+            //one ply from the leaves the other side's winning move would be scored by the heuristic, not as a win
+            if (depth >= 2) {
+                allowed = Threats.safeMoves(own ^ mask, mask);
+                if (allowed == 0) {
+                    leaves++;
+                    return maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+                }
+            }
+        }
+
+        //use what the table knows about this position, either its score or at least the move to try first
+        int tableMove = NO_MOVE;
+        boolean mirrored = foldMirrors && board.mirrorHash < board.hash;
+        long key = mirrored ? board.mirrorHash : board.hash;
+        if (maximizingPlayer) {
+            key ^= SIDE;
+        }
+        long entry = table == null ? TranspositionTable.MISS : table.probe(key);
+        if (TranspositionTable.found(entry)) {
+            tableHits++;
+            tableMove = mirror(TranspositionTable.move(entry), mirrored);
+            int score = TranspositionTable.score(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return score;
+                } else if (bound == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) {
+                    cutoffs++;
+                    return score;
+                }
+            }
+        } else if (table != null) {
+            tableMisses++;
+            if (entry == TranspositionTable.COLLISION) {
+                tableCollisions++;
+            }
+        }
+        if (outOfTime()) {
+            return 0;
+        }
+        int alphaBefore = alpha;
+        int betaBefore = beta;
+
+        int value = maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int bestColumn = NO_MOVE;
+        int[] order = moveBuffer[board.moves];
+        int count = orderMoves(board, tableMove, order, foldMirrors && board.isSymmetric(), allowed);
+        if (useHistory) {
+            sortByHistory(board, order, order[0] == tableMove ? 1 : 0, count, maximizingPlayer);
+        }
+        for (int i = 0; i < count; i++) {
+            int column = order[i];
+            play(column, maximizingPlayer);
+            int childValue = alphaBeta(depth - 1, alpha, beta, !maximizingPlayer);
+            undo(column, maximizingPlayer);
+            if (aborted) {
+                return 0;
+            }
+            if (maximizingPlayer) {
+                if (childValue > value || bestColumn == NO_MOVE) {
+                    value = childValue;
+                    bestColumn = column;
+                }
+                alpha = Math.max(alpha, value);
+            } else {
+                if (childValue < value || bestColumn == NO_MOVE) {
+                    value = childValue;
+                    bestColumn = column;
+                }
+                beta = Math.min(beta, value);
+            }
+            if (alpha >= beta) {
+                cutoffs++;
+                if (useHistory) {
+                    rememberCutoff(board, column, depth, maximizingPlayer);
+                }
+                break;
+            }
+        }
+
+        if (table != null) {
+            int bound = TranspositionTable.EXACT;
+            if (value <= alphaBefore) {
+                bound = TranspositionTable.UPPER;
+            } else if (value >= betaBefore) {
+                bound = TranspositionTable.LOWER;
+            }
+            table.store(key, depth, bound, value, mirror(bestColumn, mirrored));
+        }
+        return value;
+    }
+
+    //this method calculates the score of the board state for the AI. Higher the value the better the board state is for
+    //the AI
+    public static int heuristic(Bitboard board, boolean player) {
+        return Evaluator.evaluate(board, player);
+    }
+
+    //play a move on the working position and tell the evaluator
+    private void play(int column, boolean player) {
+        if (!swarLeaves) {
+            evaluator.add(column * Bitboard.H1 + position.heights[column], player);
+        }
+        position.play(column, player);
+    }
+
+    //take a move back
+    private void undo(int column, boolean player) {
+        position.undoMove(column);
+        if (!swarLeaves) {
+            evaluator.remove(column * Bitboard.H1 + position.heights[column], player);
+        }
+    }
+
+    //write the columns that aren't full into order, firstMove first and then the rest centre-first. Returns how many there are.
+    private int orderMoves(int firstMove, int[] order) {
+        return orderMoves(position, firstMove, order, foldMirrors && position.isSymmetric(), Bitboard.BOARD);
+    }
+
+    //with leftHalf only the columns up to the middle are written, and only the columns with a cell in allowed
+    private static int orderMoves(Bitboard board, int firstMove, int[] order, boolean leftHalf, long allowed) {
+        int last = leftHalf ? Bitboard.WIDTH / 2 : Bitboard.WIDTH - 1;
+        int count = 0;
+        if (firstMove != NO_MOVE && firstMove <= last && !board.isFull(firstMove) && isAllowed(firstMove, allowed)) {
+            order[count++] = firstMove;
+        }
+        for (int column : CENTER_ORDER) {
+            if (column != firstMove && column <= last && !board.isFull(column) && isAllowed(column, allowed)) {
+                order[count++] = column;
+            }
+        }
+        return count;
+    }
+
+    //sort order[from..count) by killers and then history, highest first. Equal moves keep their order, so with no history
+    //yet the order is the same as without it.
+    private void sortByHistory(Bitboard board, int[] order, int from, int count, boolean player) {
+        int[] scores = moveScores[board.moves];
+        int killer = 2 * board.moves;
+        int side = player ? Bitboard.WIDTH * Bitboard.H1 : 0;
+        for (int i = from; i < count; i++) {
+            int column = order[i];
+            int score = column == killers[killer] ? KILLER : column == killers[killer + 1] ? KILLER - 1
+                    : history[side + column * Bitboard.H1 + board.heights[column]];
+            int j = i;
+            while (j > from && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                order[j] = order[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            order[j] = column;
+        }
+    }
+
+    //a move cut the search off: make it a killer for this number of pieces and add to the history of its cell
+    private void rememberCutoff(Bitboard board, int column, int depth, boolean player) {
+        int killer = 2 * board.moves;
+        if (killers[killer] != column) {
+            killers[killer + 1] = killers[killer];
+            killers[killer] = column;
+        }
+        int cell = (player ? Bitboard.WIDTH * Bitboard.H1 : 0) + column * Bitboard.H1 + board.heights[column];
+        history[cell] += depth * depth;
+        if (history[cell] > HISTORY_LIMIT) {
+            SearchMemory.halve(history);
+        }
+    }
+
+    //the moves the table expects after the AI plays first from a position: first, the reply, the AI's answer and so on,
+    //as long as the table has them. Returns how many were written into pv.
+    public int principalVariation(Bitboard root, int first, int[] pv) {
+        Bitboard board = new Bitboard(root);
+        boolean player = true;
+        int column = first;
+        int count = 0;
+        while (column >= 0 && column != NO_MOVE && count < pv.length && !board.isFull(column)) {
+            pv[count++] = column;
+            board.play(column, player);
+            if (table == null || board.isWin(player) || board.isFull()) {
+                break;
+            }
+            player = !player;
+            boolean mirrored = foldMirrors && board.mirrorHash < board.hash;
+            long key = mirrored ? board.mirrorHash : board.hash;
+            if (player) {
+                key ^= SIDE;
+            }
+            long entry = table.probe(key);
+            column = TranspositionTable.found(entry) ? mirror(TranspositionTable.move(entry), mirrored) : NO_MOVE;
+        }
+        return count;
+    }
+
+    private static boolean isAllowed(int column, long allowed) {
+        return (allowed & Solver.columnMask(column)) != 0;
+    }
+
+    //a column as it is in the mirror image if mirrored is true
+    private static int mirror(int column, boolean mirrored) {
+        return mirrored && column != NO_MOVE ? Bitboard.WIDTH - 1 - column : column;
+    }
+}
@@ -0,0 +1,103 @@
+package connect4;
+
+import java.util.Arrays;
+
+/*
+
+What the AI's searches in one game keep from one move to the next. Every new root is two plies below the last one, so most of
+what the last search found is about positions the next one looks at again. A memory keeps:
+
+    a transposition table of its own, kilobytes big, or the engine's table when kilobytes is 0. Every move starts a new
+    generation of its own table, so what the game has left behind gives up its places to what the new search stores (see
+    TranspositionTable). The engine's table is shared with every other game and is never aged by one of them.
+    the killer moves and the history of every cell (see Search), halved every move so the old cutoffs count for less than
+    the new ones.
+    the principal variation of the last search, the moves the table expected from there. When the game followed it, the
+    next search tries the move it expects at the root first.
+
+The memory a game takes is capped by the size of its table, the rest is about a kilobyte, so a server can give each of its
+games one and keep all of them warm. Engine.bestMove(Position, Limits, SearchMemory) uses it. A memory is for one game and
+one search at a time, like the game's moves.
+
+*/
+
+public class SearchMemory {
+    private static final int CELLS = Bitboard.WIDTH * Bitboard.HEIGHT;
+
+    //null to search with the engine's table
+    final TranspositionTable table;
+    final int[] killers = newKillers();
+    final int[] history = newHistory();
+
+    //the position the last search was from, with the AI's move and the moves the table expected after it
+    private Position root;
+    private final int[] pv = new int[CELLS];
+    private int pvLength;
+
+    public SearchMemory(int kilobytes) {
+        table = kilobytes > 0 ? TranspositionTable.ofKilobytes(kilobytes) : null;
+    }
+
+    static int[] newKillers() {
+        int[] killers = new int[2 * (CELLS + 1)];
+        Arrays.fill(killers, Search.NO_MOVE);
+        return killers;
+    }
+
+    static int[] newHistory() {
+        return new int[2 * Bitboard.WIDTH * Bitboard.H1];
+    }
+
+    static void halve(int[] history) {
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    //get ready to search another move: a new generation of the memory's own table, and the history counts for half
+    void newMove() {
+        if (table != null) {
+            table.newGeneration();
+        }
+        halve(history);
+    }
+
+    //the move the last principal variation expects in a position, or NO_MOVE if the game didn't follow it there
+    int expectedMove(Position position) {
+        Position next = root;
+        for (int i = 0; next != null && i < pvLength; i++) {
+            if (next.equals(position)) {
+                return pv[i];
+            }
+            next = next.canPlay(pv[i]) ? next.play(pv[i]) : null;
+        }
+        return Search.NO_MOVE;
+    }
+
+    //keep the principal variation of a search from a position
+    void remember(Position position, Search search, Bitboard board, int move) {
+        root = position;
+        pvLength = search.principalVariation(board, move, pv);
+    }
+
+    //the principal variation of the last search, the AI's move first
+    public int[] principalVariation() {
+        return Arrays.copyOf(pv, pvLength);
+    }
+
+    //the memory the game keeps, most of it the table
+    public long bytes() {
+        return (table != null ? table.bytes() : 0) + 4L * (killers.length + history.length + pv.length);
+    }
+
+    //forget everything, for a new game
+    public void clear() {
+        if (table != null) {
+            table.clear();
+        }
+        Arrays.fill(killers, Search.NO_MOVE);
+        Arrays.fill(history, 0);
+        root = null;
+        pvLength = 0;
+    }
+}
@@ -0,0 +1,141 @@
+package connect4;
+
+import java.util.Arrays;
+
+/*
+
+What one search did, copied out of the Search once the move is picked so it can be kept and passed around: the positions it
+visited, how many of them were leaves scored by the heuristic, the cutoffs, the transposition table probes, the bytes it
+allocated, and the time and positions for every depth it finished.
+
+The effective branching factor is the b for which b^plies is the number of positions the deepest depth searched, where a
+search of depth d looks d + 1 plies ahead (the AI's move and d below it). Without pruning it would be close to 7, the lower
+the better the pruning and the move ordering work.
+
+toLogLine() writes it all on one line of key=value pairs, for a log that other programs read.
+
+*/
+
+public final class SearchMetrics {
+    static final SearchMetrics NONE = new SearchMetrics(0, 0, 0, 0, 0, 0, 0, 0, new int[0], new long[0], new long[0]);
+
+    private final long nodes;
+    private final long leaves;
+    private final long cutoffs;
+    private final long tableHits;
+    private final long tableMisses;
+    private final long tableCollisions;
+    private final long allocatedBytes;
+    private final long timeNanos;
+    private final int[] depths;
+    private final long[] depthNanos;
+    private final long[] depthNodes;
+
+    SearchMetrics(long nodes, long leaves, long cutoffs, long tableHits, long tableMisses, long tableCollisions,
+            long allocatedBytes, long timeNanos, int[] depths, long[] depthNanos, long[] depthNodes) {
+        this.nodes = nodes;
+        this.leaves = leaves;
+        this.cutoffs = cutoffs;
+        this.tableHits = tableHits;
+        this.tableMisses = tableMisses;
+        this.tableCollisions = tableCollisions;
+        this.allocatedBytes = allocatedBytes;
+        this.timeNanos = timeNanos;
+        this.depths = depths;
+        this.depthNanos = depthNanos;
+        this.depthNodes = depthNodes;
+    }
+
+    //a copy of what the search counted for its last move
+    static SearchMetrics of(Search search) {
+        int n = search.depthsSearched;
+        return new SearchMetrics(search.nodes, search.leaves, search.cutoffs, search.tableHits, search.tableMisses,
+                search.tableCollisions, search.allocatedBytes, search.timeUsedNanos,
+                Arrays.copyOf(search.searchedDepths, n), Arrays.copyOf(search.depthNanos, n),
+                Arrays.copyOf(search.depthNodes, n));
+    }
+
+    //the metrics of a move that only has a count of positions, like a solved one
+    static SearchMetrics ofNodes(long nodes, long timeNanos) {
+        return new SearchMetrics(nodes, 0, 0, 0, 0, 0, 0, timeNanos, new int[0], new long[0], new long[0]);
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    public long leaves() {
+        return leaves;
+    }
+
+    public long cutoffs() {
+        return cutoffs;
+    }
+
+    public long tableHits() {
+        return tableHits;
+    }
+
+    public long tableMisses() {
+        return tableMisses;
+    }
+
+    public long tableCollisions() {
+        return tableCollisions;
+    }
+
+    //the share of table probes that found their position
+    public double tableHitRate() {
+        long probes = tableHits + tableMisses;
+        return probes == 0 ? 0 : (double) tableHits / probes;
+    }
+
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long timeNanos() {
+        return timeNanos;
+    }
+
+    //the deepest depth that finished, or -1 if none did
+    public int depth() {
+        return depths.length == 0 ? -1 : depths[depths.length - 1];
+    }
+
+    //the time each finished depth took, in the order they were searched, and the depths themselves
+    public long[] depthNanos() {
+        return depthNanos.clone();
+    }
+
+    public int[] depths() {
+        return depths.clone();
+    }
+
+    public double effectiveBranchingFactor() {
+        if (depths.length == 0) {
+            return 0;
+        }
+        int last = depths.length - 1;
+        return Math.pow(depthNodes[last], 1.0 / (depths[last] + 1));
+    }
+
+    //everything on one line, like "nodes=1234 leaves=800 ... depthUs=0:12,1:40"
+    public String toLogLine() {
+        StringBuilder line = new StringBuilder();
+        line.append("nodes=").append(nodes)
+                .append(" leaves=").append(leaves)
+                .append(" cutoffs=").append(cutoffs)
+                .append(" ttHits=").append(tableHits)
+                .append(" ttMisses=").append(tableMisses)
+                .append(" ttCollisions=").append(tableCollisions)
+                .append(" ebf=").append(String.format("%.3f", effectiveBranchingFactor()))
+                .append(" allocBytes=").append(allocatedBytes)
+                .append(" timeUs=").append(timeNanos / 1000)
+                .append(" depthUs=");
+        for (int i = 0; i < depths.length; i++) {
+            line.append(i == 0 ? "" : ",").append(depths[i]).append(':').append(depthNanos[i] / 1000);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package connect4;
+
+/*
+
+What Engine.bestMove found. The score is for the player who was to move. For a search it is the heuristic's score, for a
+solved position it is Solver's exact score, and a book move has no score (0). depth is how deep the search went (0 for the
+book and the solver, the depth of the stored search for the cache and for a reply searched while pondering) and move is -1
+if there was nothing to play. metrics() is what the search counted (see SearchMetrics), only the positions are counted for
+the solver and nothing for the book.
+
+*/
+
+public final class SearchResult {
+    public static final String SEARCH = "search";
+    public static final String SOLVER = "solver";
+    public static final String BOOK = "book";
+    public static final String CACHE = "cache";
+    public static final String PONDER = "ponder";
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final long timeNanos;
+    private final String source;
+    private final SearchMetrics metrics;
+
+    public SearchResult(int move, int score, int depth, long nodes, long timeNanos, String source) {
+        this(move, score, depth, timeNanos, source, SearchMetrics.ofNodes(nodes, timeNanos));
+    }
+
+    SearchResult(int move, int score, int depth, long timeNanos, String source, SearchMetrics metrics) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.timeNanos = timeNanos;
+        this.source = source;
+        this.metrics = metrics;
+    }
+
+    //what a search counted, along with its move, score and depth
+    static SearchResult of(Search search, int move, int depth, long timeNanos) {
+        return new SearchResult(move, search.bestScore, depth, timeNanos, SEARCH, SearchMetrics.of(search));
+    }
+
+    public int move() {
+        return move;
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long nodes() {
+        return metrics.nodes();
+    }
+
+    public long timeNanos() {
+        return timeNanos;
+    }
+
+    //where the move came from, SEARCH, SOLVER, BOOK, CACHE or PONDER
+    public String source() {
+        return source;
+    }
+
+    public SearchMetrics metrics() {
+        return metrics;
+    }
+
+    //the move and everything the search counted on one line of key=value pairs, for a log other programs read
+    public String toLogLine() {
+        return "source=" + source + " move=" + move + " score=" + score + " depth=" + depth + " " + metrics.toLogLine();
+    }
+
+    @Override
+    public String toString() {
+        return "move=" + move + " score=" + score + " depth=" + depth + " nodes=" + nodes() + " timeMs="
+                + timeNanos / 1000000 + " source=" + source;
+    }
+}
@@ -0,0 +1,329 @@
+package connect4;
+
+import java.util.Arrays;
+
+/*
+
+Solves positions exactly instead of stopping at a depth and guessing with the heuristic, for analysis and for an AI that
+can't be beaten. The score is from the point of view of the player whose turn it is:
+
+    0 is a draw with perfect play from both sides,
+    a positive score means they win. The sooner they win the higher it is: 1 is a win with their last piece, 21 a win with
+    their first piece on an empty board,
+    a negative score means they lose, the sooner the lower.
+
+distance() turns a score back into how many of their own pieces it takes to win, or how many moves until they lose.
+
+The search is negamax (one function for both players, negating the score at every level) on the same bitboard layout as
+Bitboard. It never searches a move that loses straight away ("anti-moves"): if the opponent has a winning cell that can be
+played, that cell is the only move, and a cell right under one of the opponent's winning cells is never played. Moves are tried
+in the order of how many new winning cells they make, centre first on ties. Every position it finishes is kept in a table
+as an upper or lower bound on its score.
+
+Each table entry is one long, the position's key shifted up 8 bits with the stored value in the low 8, so an entry is always
+written and read whole. That lets solvers on different threads share one table without locks, each with its own move
+buffers (see Solver(Solver)).
+
+A position and its mirror image have the same score, so the table keeps them under the lower of their two keys, and in a
+position that is its own mirror image only the columns up to the middle are searched. foldMirrors turns both off.
+
+Rather than searching for the exact score directly, solve() asks a series of yes/no questions with a null window, "is the
+score above x", narrowing the range each time. Null window searches cut off far more than a full window search does.
+
+*/
+
+public class Solver {
+    public static final int CELLS = Bitboard.WIDTH * Bitboard.HEIGHT;
+    public static final int MIN_SCORE = -CELLS / 2 + 3;
+    public static final int MAX_SCORE = (CELLS + 1) / 2 - 3;
+
+    //the fewest entries a table has, two so the index takes at least one bit of the key
+    private static final int MIN_ENTRIES = 2;
+
+    private final long[] entries;
+    private final int indexShift;
+
+    //candidate moves and their scores for each number of pieces on the board
+    private final long[][] sortMoves = new long[CELLS + 1][Bitboard.WIDTH];
+    private final int[][] sortScores = new int[CELLS + 1][Bitboard.WIDTH];
+
+    //store mirror images under one entry and skip mirrored moves in symmetric positions
+    boolean foldMirrors = true;
+
+    long nodes;
+    //the score of the move bestMove picked
+    int bestScore;
+
+    //a solver with a table of about megabytes of memory, and at least MIN_ENTRIES entries
+    public Solver(int megabytes) {
+        int size = Integer.highestOneBit((int) Math.max(MIN_ENTRIES, Math.min(((long) megabytes << 20) / 8, 1 << 28)));
+        entries = new long[size];
+        indexShift = 64 - Integer.numberOfTrailingZeros(size);
+    }
+
+    //a solver for another thread that shares shared's table
+    public Solver(Solver shared) {
+        entries = shared.entries;
+        indexShift = shared.indexShift;
+    }
+
+    public Solver() {
+        this(64);
+    }
+
+    //forget every solved position
+    public void reset() {
+        Arrays.fill(entries, 0);
+    }
+
+    //the exact score of a position for the player whose turn it is
+    public int solve(Bitboard board) {
+        long current = board.pieces(board.sideToMove());
+        long mask = board.o | board.x;
+        return solve(current, mask, board.moves);
+    }
+
+    private int solve(long current, long mask, int moves) {
+        if (canWinNext(current, mask)) {
+            return (CELLS + 1 - moves) / 2;
+        }
+        int min = -(CELLS - moves) / 2;
+        int max = (CELLS + 1 - moves) / 2;
+        //narrow down the score with null window searches, looking near 0 first because that's where most scores are
+        while (min < max) {
+            int med = min + (max - min) / 2;
+            if (med <= 0 && min / 2 < med) {
+                med = min / 2;
+            } else if (med >= 0 && max / 2 > med) {
+                med = max / 2;
+            }
+            int result = negamax(current, mask, moves, med, med + 1);
+            if (result <= med) {
+                max = result;
+            } else {
+                min = result;
+            }
+        }
+        return min;
+    }
+
+    //the best column for the player to move, centre first when scores tie. scores gets the score of every column, or
+    //Integer.MIN_VALUE for full ones. Returns -1 if every column is full.
+    public int bestMove(Bitboard board, int[] scores) {
+        long current = board.pieces(board.sideToMove());
+        long mask = board.o | board.x;
+        int best = -1;
+        bestScore = Integer.MIN_VALUE;
+        //a column right of the middle of a symmetric position scores the same as its mirror, which is searched first
+        boolean symmetric = foldMirrors && board.isSymmetric();
+        int[] rootScores = sortScores[board.moves];
+        for (int column : Search.CENTER_ORDER) {
+            int score = Integer.MIN_VALUE;
+            if (symmetric && column > Bitboard.WIDTH / 2) {
+                score = rootScores[Bitboard.WIDTH - 1 - column];
+            } else if (!board.isFull(column)) {
+                long move = (mask + Bitboard.BOTTOM) & columnMask(column);
+                if (Bitboard.hasFour(current | move)) {
+                    score = (CELLS + 1 - board.moves) / 2;
+                } else if (board.moves + 1 == CELLS) {
+                    score = 0;
+                } else {
+                    score = -solve(current ^ mask, mask | move, board.moves + 1);
+                }
+            }
+            if (score > bestScore) {
+                best = column;
+                bestScore = score;
+            }
+            rootScores[column] = score;
+            if (scores != null) {
+                scores[column] = score;
+            }
+        }
+        return best;
+    }
+
+    //how a score turns out for the player to move: for a win the number of their own pieces it takes including the
+    //winning one, for a loss the number of moves until the opponent wins, and 0 for a draw
+    public static int distance(int score, int moves) {
+        if (score > 0) {
+            int winningMove = CELLS + 1 - 2 * score;
+            if ((winningMove - moves) % 2 != 0) {
+                winningMove--;
+            }
+            return (winningMove - moves) / 2 + 1;
+        } else if (score < 0) {
+            int losingMove = CELLS + 1 + 2 * score;
+            if ((losingMove - moves) % 2 == 0) {
+                losingMove--;
+            }
+            return losingMove - moves + 1;
+        }
+        return 0;
+    }
+
+    //a score written out, like "win in 3 moves"
+    public static String describe(int score, int moves) {
+        int distance = distance(score, moves);
+        String unit = distance == 1 ? " move" : " moves";
+        if (score > 0) {
+            return "win in " + distance + unit;
+        } else if (score < 0) {
+            return "loss in " + distance + unit;
+        }
+        return "draw";
+    }
+
+    //the score of the position is at most alpha if it returns at most alpha, at least beta if it returns at least beta, and
+    //exact in between. current is the pieces of the player to move and mask every piece.
+    private int negamax(long current, long mask, int moves, int alpha, int beta) {
+        nodes++;
+        long next = nonLosingMoves(current, mask);
+        if (next == 0) {
+            //every move lets the opponent win next turn
+            return -(CELLS - moves) / 2;
+        }
+        if (moves >= CELLS - 2) {
+            //the opponent can't win with the last piece either, so it's a draw
+            return 0;
+        }
+
+        //the opponent can't win on their next move, so the score can't be lower than this
+        int min = -(CELLS - 2 - moves) / 2;
+        if (alpha < min) {
+            alpha = min;
+            if (alpha >= beta) {
+                return alpha;
+            }
+        }
+        //and this player can't win on this move, so it can't be higher than this
+        int max = (CELLS - 1 - moves) / 2;
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) {
+                return beta;
+            }
+        }
+
+        long key = current + mask;
+        boolean symmetric = false;
+        if (foldMirrors) {
+            long mirrored = Bitboard.mirror(key);
+            symmetric = mirrored == key;
+            key = Math.min(key, mirrored);
+        }
+        int stored = get(key);
+        if (stored != 0) {
+            if (stored > MAX_SCORE - MIN_SCORE + 1) {
+                //a lower bound
+                min = stored + 2 * MIN_SCORE - MAX_SCORE - 2;
+                if (alpha < min) {
+                    alpha = min;
+                    if (alpha >= beta) {
+                        return alpha;
+                    }
+                }
+            } else {
+                //an upper bound
+                max = stored + MIN_SCORE - 1;
+                if (beta > max) {
+                    beta = max;
+                    if (alpha >= beta) {
+                        return beta;
+                    }
+                }
+            }
+        }
+
+        int count = sortMoves(current, mask, next, moves, symmetric);
+        long[] candidates = sortMoves[moves];
+        for (int i = 0; i < count; i++) {
+            long move = candidates[i];
+            int score = -negamax(current ^ mask, mask | move, moves + 1, -beta, -alpha);
+            if (score >= beta) {
+                put(key, score + MAX_SCORE - 2 * MIN_SCORE + 2);
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        put(key, alpha - MIN_SCORE + 1);
+        return alpha;
+    }
+
+    //put the moves in next into the buffer for this depth, the ones that make the most winning cells first. An insertion
+    //sort that keeps equal scores in the order they were added, which is centre first. With leftHalf the columns right of
+    //the middle are left out.
+    private int sortMoves(long current, long mask, long next, int moves, boolean leftHalf) {
+        long[] candidates = sortMoves[moves];
+        int[] scores = sortScores[moves];
+        int count = 0;
+        for (int c = Search.CENTER_ORDER.length - 1; c >= 0; c--) {
+            int column = Search.CENTER_ORDER[c];
+            if (leftHalf && column > Bitboard.WIDTH / 2) {
+                continue;
+            }
+            long move = next & columnMask(column);
+            if (move != 0) {
+                int score = Long.bitCount(Bitboard.winningCells(current | move, mask));
+                int i = count++;
+                while (i > 0 && scores[i - 1] > score) {
+                    candidates[i] = candidates[i - 1];
+                    scores[i] = scores[i - 1];
+                    i--;
+                }
+                candidates[i] = move;
+                scores[i] = score;
+            }
+        }
+        //the loop above sorted lowest first so that ties end up centre first when read from the end, flip it around
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            long move = candidates[i];
+            candidates[i] = candidates[j];
+            candidates[j] = move;
+            int score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+        return count;
+    }
+
+    //the moves that don't hand the opponent a win next turn, as one bit per playable cell
+    static long nonLosingMoves(long current, long mask) {
+        return Threats.safeMoves(current ^ mask, mask);
+    }
+
+    static boolean canWinNext(long current, long mask) {
+        return Threats.immediateWins(current, mask) != 0;
+    }
+
+    static long columnMask(int column) {
+        return ((1L << Bitboard.HEIGHT) - 1) << (column * Bitboard.H1);
+    }
+
+    private int get(long key) {
+        int index = (int) ((key * 0x9E3779B97F4A7C15L) >>> indexShift);
+        long entry = entries[index];
+        return entry >>> 8 == key ? (int) (entry & 0xFF) : 0;
+    }
+
+    private void put(long key, int value) {
+        int index = (int) ((key * 0x9E3779B97F4A7C15L) >>> indexShift);
+        entries[index] = key << 8 | value;
+    }
+
+    //solve the positions given as columns played, e.g. java connect4.Solver 4453 3322
+    public static void main(String[] args) {
+        Solver solver = new Solver();
+        for (String moves : args) {
+            Bitboard board = Bitboard.fromMoves(moves);
+            solver.nodes = 0;
+            long start = System.nanoTime();
+            int score = solver.solve(board);
+            long time = System.nanoTime() - start;
+            System.out.println(moves + ": score " + score + ", " + describe(score, board.moves) + " for the player to move ("
+                    + solver.nodes + " positions, " + time / 1000000 + " ms)");
+        }
+    }
+}
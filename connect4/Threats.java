@@ -0,0 +1,114 @@
+package connect4;
+
+/*
+
+The threats on a board, worked out straight from the bitboard masks. A threat is an empty cell where one more piece would
+give a player four in a row (Bitboard.winningCells), whether or not it can be played yet.
+
+    an immediate win is a threat that can be played now, it wins on the player's next move
+    a cell under an opponent's threat is one a player mustn't play, it lets the opponent play their threat next
+    a threat's row decides who it's good for once the board fills up (zugzwang). Counting rows from 1 at the bottom,
+    the player who moves first ("X") can use threats on odd rows and the second player ("O") threats on even rows,
+    because when every other column is full the players fill a column in turn and that is who gets to those rows
+
+The search only needs the first two, through the static methods, to answer forced positions without searching them: a
+player with an immediate win has won, a player facing one has to block it, and no one plays under an opponent's threat.
+A Threats made from a board has all of it for both players, for analysis and for main().
+
+*/
+
+public final class Threats {
+    //rows 1, 3 and 5 counting from 1 at the bottom, and rows 2, 4 and 6
+    public static final long ODD_ROWS = Bitboard.BOTTOM * 0b010101;
+    public static final long EVEN_ROWS = Bitboard.BOTTOM * 0b101010;
+
+    final long threatsO, threatsX;
+    final long playable;
+
+    //the threats on a board
+    public Threats(Bitboard board) {
+        long mask = board.o | board.x;
+        threatsO = Bitboard.winningCells(board.o, mask);
+        threatsX = Bitboard.winningCells(board.x, mask);
+        playable = playable(mask);
+    }
+
+    //the cells a piece can be dropped into, one per column that isn't full
+    public static long playable(long mask) {
+        return (mask + Bitboard.BOTTOM) & Bitboard.BOARD;
+    }
+
+    //the threats of pieces that can be played right now
+    public static long immediateWins(long pieces, long mask) {
+        return Bitboard.winningCells(pieces, mask) & playable(mask);
+    }
+
+    //the playable cells that don't let the opponent win on their next move. If the opponent has a threat that can be played
+    //it's the only move, and a cell under one of the opponent's threats is never one. 0 if every move loses.
+    public static long safeMoves(long opponent, long mask) {
+        long possible = playable(mask);
+        long opponentThreats = Bitboard.winningCells(opponent, mask);
+        long forced = possible & opponentThreats;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0) {
+                //two threats the opponent can play, one of them will be left open
+                return 0;
+            }
+            possible = forced;
+        }
+        return possible & ~(opponentThreats >>> 1);
+    }
+
+    public long threats(boolean player) {
+        return player ? threatsO : threatsX;
+    }
+
+    public long immediateWins(boolean player) {
+        return threats(player) & playable;
+    }
+
+    //the playable cells right under the opponent's threats
+    public long under(boolean player) {
+        return playable & (threats(!player) >>> 1);
+    }
+
+    public long oddThreats(boolean player) {
+        return threats(player) & ODD_ROWS;
+    }
+
+    public long evenThreats(boolean player) {
+        return threats(player) & EVEN_ROWS;
+    }
+
+    //the threats on the rows that suit the player: odd rows for "X" who moves first, even rows for "O"
+    public long goodThreats(boolean player) {
+        return player ? evenThreats(true) : oddThreats(false);
+    }
+
+    //the threats of a player written out by column and row, counting rows from 1 at the bottom, like "3:2 5:1"
+    public static String cells(long cells) {
+        StringBuilder text = new StringBuilder();
+        for (int column = 0; column < Bitboard.WIDTH; column++) {
+            for (int row = 0; row < Bitboard.HEIGHT; row++) {
+                if ((cells & Bitboard.cell(column, row)) != 0) {
+                    text.append(text.length() == 0 ? "" : " ").append(column).append(':').append(row + 1);
+                }
+            }
+        }
+        return text.length() == 0 ? "none" : text.toString();
+    }
+
+    //print the threats of the positions given as columns played, e.g. java connect4.Threats 3342 44455
+    public static void main(String[] args) {
+        for (String moves : args) {
+            Threats threats = new Threats(Bitboard.fromMoves(moves));
+            System.out.println(moves + ":");
+            for (boolean player : new boolean[] {false, true}) {
+                String name = player ? "O" : "X";
+                System.out.println("  " + name + " threats " + cells(threats.threats(player)) + ", wins now "
+                        + cells(threats.immediateWins(player)) + ", on good rows " + cells(threats.goodThreats(player))
+                        + ", mustn't play " + cells(threats.under(player)));
+            }
+        }
+    }
+}
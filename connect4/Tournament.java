@@ -0,0 +1,220 @@
+package connect4;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+
+Plays the AI against itself with two different settings, to tune the heuristic's weights. A setting is the depth (or time)
+it searches and its Weights, written like "depth=6,two=300,middle=5".
+
+Games are played in pairs from the same opening, a few random moves from the empty board, with each side moving first
+once, so neither side gets a better opening or the first move more often. The games are spread over a fixed pool of threads,
+all the cores by default, and every thread has its own engine for each side, whose tables are cleared before every game so
+a game plays out the same however the games are spread over the threads.
+
+Every game is written out as soon as it ends, one line each:
+
+    <game> <opening> <first> <result> <moves>
+
+first is A or B, result is 1, 0.5 or 0 for A, and moves are the columns played after the opening. The lines come in the
+order the games finish, so the game number is there to sort them by.
+
+At the end it prints A's wins, draws and losses, the Elo difference with a 95% confidence interval, the games per second and
+the CPU time used.
+
+    java connect4.Tournament <games> <setting A> <setting B> [opening moves=4] [threads=cores] [file=-] [seed=1]
+
+A file of - writes the games to the console.
+
+*/
+
+public class Tournament {
+    private static final int TABLE_MEGABYTES = 4;
+
+    //one side's settings
+    static final class Player {
+        final Limits limits;
+        final Weights weights;
+
+        Player(Limits limits, Weights weights) {
+            this.limits = limits;
+            this.weights = weights;
+        }
+
+        //settings like "depth=6,timeMs=50,two=300". Without depth or timeMs the search goes 6 plies deep.
+        static Player parse(String text) {
+            String query = text.replace(',', '&');
+            long timeMs = GameServer.parameter(query, "timeMs", 0L);
+            Limits limits = timeMs > 0 ? Limits.time(timeMs).withDepth(GameServer.parameter(query, "depth", Limits.MAX_DEPTH))
+                    : Limits.depth(GameServer.parameter(query, "depth", 6));
+            StringBuilder weights = new StringBuilder();
+            for (String pair : text.split(",")) {
+                String name = pair.split("=", 2)[0].trim();
+                if (!name.equals("depth") && !name.equals("timeMs")) {
+                    weights.append(pair).append(',');
+                }
+            }
+            return new Player(limits.withBook(false), Weights.parse(weights.toString()));
+        }
+    }
+
+    private final Player a;
+    private final Player b;
+    private final int openingMoves;
+    private final long seed;
+    private final ThreadLocal<Engine[]> engines;
+
+    private int wins;
+    private int draws;
+    private int losses;
+
+    public Tournament(Player a, Player b, int openingMoves, long seed) {
+        this.a = a;
+        this.b = b;
+        this.openingMoves = openingMoves;
+        this.seed = seed;
+        engines = ThreadLocal.withInitial(() -> new Engine[] {
+                new Engine(TABLE_MEGABYTES, 1, null, a.weights), new Engine(TABLE_MEGABYTES, 1, null, b.weights)});
+    }
+
+    //the random opening for a pair of games, as the columns played. Openings that are already over are drawn again.
+    String opening(int pair) {
+        Random random = new Random(seed * 1000003 + pair);
+        while (true) {
+            Position position = Position.EMPTY;
+            StringBuilder moves = new StringBuilder();
+            for (int i = 0; i < openingMoves && !position.isGameOver(); i++) {
+                int column;
+                do {
+                    column = random.nextInt(Bitboard.WIDTH);
+                } while (!position.canPlay(column));
+                position = position.play(column);
+                moves.append(column);
+            }
+            if (!position.isGameOver()) {
+                return moves.toString();
+            }
+        }
+    }
+
+    //play one game and return its line. Even games have A moving first after the opening, odd ones B.
+    String play(int game) {
+        String opening = opening(game / 2);
+        Position position = Position.fromMoves(opening);
+        boolean aFirst = game % 2 == 0;
+        Engine[] pair = engines.get();
+        pair[0].clear();
+        pair[1].clear();
+        //the side that moves first after the opening is the one whose turn it is then
+        boolean aSide = position.sideToMove() == aFirst;
+        StringBuilder moves = new StringBuilder();
+        while (!position.isGameOver()) {
+            boolean aToMove = position.sideToMove() == aSide;
+            Player player = aToMove ? a : b;
+            int move = pair[aToMove ? 0 : 1].bestMove(position, player.limits).move();
+            position = position.play(move);
+            moves.append(move);
+        }
+        String result = position.isWin(aSide) ? "1" : position.isWin(!aSide) ? "0" : "0.5";
+        synchronized (this) {
+            if (result.equals("1")) {
+                wins++;
+            } else if (result.equals("0")) {
+                losses++;
+            } else {
+                draws++;
+            }
+        }
+        return game + " " + opening + " " + (aFirst ? "A" : "B") + " " + result + " " + moves;
+    }
+
+    //play games games over threads threads, writing every game to out as it ends
+    public void run(int games, int threads, Writer out) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            int number = game;
+            results.add(pool.submit(() -> {
+                String line = play(number);
+                synchronized (out) {
+                    out.write(line);
+                    out.write('\n');
+                }
+                return line;
+            }));
+        }
+        for (Future<String> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+        out.flush();
+    }
+
+    //A's score per game with a 95% confidence interval, and the same as Elo differences
+    public String summary() {
+        int games = wins + draws + losses;
+        double score = (wins + 0.5 * draws) / games;
+        double variance = (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+                + losses * score * score) / games;
+        double margin = 1.96 * Math.sqrt(variance / games);
+        return String.format("A: %d wins, %d draws, %d losses, score %.3f, Elo %+.0f (95%% %+.0f to %+.0f)", wins, draws,
+                losses, score, elo(score), elo(score - margin), elo(score + margin));
+    }
+
+    //the rating difference that gives this expected score
+    static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return 400 * Math.log10(score / (1 - score));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: java connect4.Tournament <games> <setting A> <setting B> [opening moves] [threads] [file]"
+                    + " [seed]");
+            return;
+        }
+        int games = Integer.parseInt(args[0]);
+        Player a = Player.parse(args[1]);
+        Player b = Player.parse(args[2]);
+        int openingMoves = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 1;
+        boolean toFile = args.length > 5 && !args[5].equals("-");
+        Writer out = toFile ? Files.newBufferedWriter(Paths.get(args[5]), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuBefore = os.getProcessCpuTime();
+        long start = System.nanoTime();
+        Tournament tournament = new Tournament(a, b, openingMoves, seed);
+        tournament.run(games, threads, out);
+        long elapsed = System.nanoTime() - start;
+        long cpu = os.getProcessCpuTime() - cpuBefore;
+        if (toFile) {
+            out.close();
+        }
+
+        System.out.println("A: " + args[1] + " " + a.weights);
+        System.out.println("B: " + args[2] + " " + b.weights);
+        System.out.println(tournament.summary());
+        System.out.printf("%d games in %.1f s on %d threads, %.1f games/s, %.1f s CPU%n", games, elapsed / 1e9, threads,
+                games * 1e9 / elapsed, cpu / 1e9);
+    }
+}
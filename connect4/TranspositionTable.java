@@ -0,0 +1,142 @@
+package connect4;
+
+import java.util.Arrays;
+
+/*
+
+A fixed size table of positions the search has already scored, so a position reached again through a different order of moves
+doesn't have to be searched again. Positions are found by their Zobrist hash (Bitboard.hash). The table is a power of two
+number of buckets with two entries each. The first entry keeps the deepest search stored in the bucket and the second
+always takes the newest one, so deep results aren't pushed out by the many shallow ones near the leaves.
+
+Every entry is two longs, the stored data and the hash xor'd with the data. A lookup xors them back and only trusts the entry
+if the result is the hash it was looking for, so an entry that was half written is just treated as a miss. That means several
+threads can share one table without any locking. The table doesn't keep counters itself, probe() returns what it found and
+the caller counts it, so searches on different threads don't fight over the same counter.
+
+A table kept from one move to the next still holds the positions of the moves before, most of them ones the game can't reach
+any more. Every entry carries the generation it was stored in, and newGeneration() starts a new one, once per move. An entry
+from an older generation is still used when its position comes up, but it no longer holds on to the deep entry of its bucket:
+the next result stored there replaces it however shallow it is, so old deep searches age out instead of staying for the rest
+of the game. Only a table that belongs to one game is aged (see SearchMemory), a table shared by many games would start a new
+generation for every move of every one of them and never keep a deep entry. When the generation comes round to 0 again the
+table is emptied, so no old entry can pass for a new one.
+
+*/
+
+public class TranspositionTable {
+    //bound types. EXACT is the real score, LOWER means the real score is at least the stored one and UPPER at most.
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    public static final int NO_MOVE = 15;
+
+    //what probe() returns when the position isn't there. COLLISION means the bucket is holding other positions.
+    public static final long MISS = 0;
+    public static final long COLLISION = Long.MIN_VALUE;
+
+    private static final int ENTRY_BYTES = 16;
+    //generations count round in the 16 bits after the move
+    private static final int GENERATIONS = 1 << 16;
+
+    private final long[] table;
+    private final int bucketMask;
+    //only changed by the game that owns the table, between its searches
+    private volatile int generation;
+
+    //make a table that takes about megabytes of memory, rounded down to a power of two number of buckets
+    public TranspositionTable(int megabytes) {
+        this((long) megabytes << 20);
+    }
+
+    private TranspositionTable(long bytes) {
+        long buckets = Math.max(1, bytes / (2 * ENTRY_BYTES));
+        int size = Integer.highestOneBit((int) Math.min(buckets, 1 << 26));
+        table = new long[size * 4];
+        bucketMask = size - 1;
+    }
+
+    //a table of about kilobytes of memory, for tables kept by each of many games (see SearchMemory)
+    public static TranspositionTable ofKilobytes(int kilobytes) {
+        return new TranspositionTable((long) kilobytes << 10);
+    }
+
+    //the memory the entries take
+    public long bytes() {
+        return (long) table.length * 8;
+    }
+
+    //the number of entries the table can hold
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    //look up a position. Returns the stored data, which score, depth, bound and move take apart, or MISS or COLLISION.
+    //Stored data always has a bound so it is never 0 and never negative.
+    public long probe(long hash) {
+        int index = (int) hash & bucketMask;
+        for (int i = index * 4; i < index * 4 + 4; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == hash) {
+                return data;
+            }
+        }
+        return table[index * 4 + 1] != 0 ? COLLISION : MISS;
+    }
+
+    public static boolean found(long data) {
+        return data > 0;
+    }
+
+    public static int score(long data) {
+        return (int) data;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+    public static int move(long data) {
+        return (int) (data >>> 42) & 0xF;
+    }
+
+    public static int generation(long data) {
+        return (int) (data >>> 46) & (GENERATIONS - 1);
+    }
+
+    //start a new generation, making the entries stored so far give up their places to new ones. Only for a table no other
+    //search is using at the time.
+    public void newGeneration() {
+        generation = (generation + 1) % GENERATIONS;
+        if (generation == 0) {
+            clear();
+        }
+    }
+
+    //store a search result. The deep entry is replaced if this search went at least as deep, it's the same position or the
+    //deep entry is from an older generation, otherwise the result goes in the always replace entry.
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int generation = this.generation;
+        long data = (score & 0xFFFFFFFFL) | ((long) depth << 32) | ((long) bound << 40) | ((long) move << 42)
+                | ((long) generation << 46);
+        int i = ((int) hash & bucketMask) * 4;
+        long deep = table[i + 1];
+        if (deep == 0 || depth >= depth(deep) || generation(deep) != generation || (table[i] ^ deep) == hash) {
+            table[i] = hash ^ data;
+            table[i + 1] = data;
+        } else {
+            table[i + 2] = hash ^ data;
+            table[i + 3] = data;
+        }
+    }
+
+    //empty the table
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+}
@@ -0,0 +1,108 @@
+package connect4;
+
+/*
+
+The AI's search for boards of any Geometry (see GridBoard). It is the same alpha-beta as Search, the AI ("O") maximizing and
+the human minimizing, with the lowest column with the highest score picked at the root, and the same heuristic with n in a
+row in place of four: the weights for twos and threes go to the open lines holding n - 2 and n - 1 pieces. On the standard
+7x6 board it picks the same moves with the same scores as Search, so Benchmark can check one against the other.
+
+It has none of Search's extras, no transposition table, threads, time limit or threat checks. The standard game keeps using
+Search on a Bitboard, which is built for the one size.
+
+Like Search it plays the moves on one working board and takes them back, and orders them from the middle column outwards.
+
+*/
+
+public class VariantSearch {
+    private final Geometry geometry;
+    //the columns from the middle outwards, the left one first when two are as far from it
+    private final int[] order;
+    private final int[] counts = new int[4];
+    private GridBoard position;
+
+    Weights weights = Weights.DEFAULT;
+    long nodes;
+    int bestScore;
+
+    public VariantSearch(Geometry geometry) {
+        this.geometry = geometry;
+        order = new int[geometry.width];
+        int count = 0;
+        int centre = (geometry.width - 1) / 2;
+        for (int distance = 0; count < order.length; distance++) {
+            if (centre - distance >= 0) {
+                order[count++] = centre - distance;
+            }
+            if (distance > 0 && centre + distance < geometry.width) {
+                order[count++] = centre + distance;
+            }
+        }
+    }
+
+    //the AI's move, every column scored by searching depth more plies below it. Returns -1 if every column is full.
+    public int bestMove(GridBoard board, int depth) {
+        position = board;
+        int best = -1;
+        bestScore = Integer.MIN_VALUE;
+        for (int column : order) {
+            if (position.isFull(column)) {
+                continue;
+            }
+            //ties go to the lower column, so a column left of the best only has to match its score
+            boolean winsTies = best == -1 || column < best;
+            int alpha = winsTies && bestScore != Integer.MIN_VALUE ? bestScore - 1 : bestScore;
+            position.play(column, true);
+            int value = alphaBeta(column, depth, alpha, Integer.MAX_VALUE, false);
+            position.undo(column);
+            if (winsTies ? value >= bestScore : value > bestScore) {
+                best = column;
+                bestScore = value;
+            }
+        }
+        return best;
+    }
+
+    //alpha-beta below a move just played in lastColumn
+    private int alphaBeta(int lastColumn, int depth, int alpha, int beta, boolean maximizingPlayer) {
+        nodes++;
+        if (depth == 0 || position.wonWith(lastColumn) || position.isFull()) {
+            return evaluate();
+        }
+        int value = maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int column : order) {
+            if (position.isFull(column)) {
+                continue;
+            }
+            position.play(column, maximizingPlayer);
+            int childValue = alphaBeta(column, depth - 1, alpha, beta, !maximizingPlayer);
+            position.undo(column);
+            if (maximizingPlayer) {
+                value = Math.max(value, childValue);
+                alpha = Math.max(alpha, value);
+            } else {
+                value = Math.min(value, childValue);
+                beta = Math.min(beta, value);
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    //the heuristic for the AI
+    private int evaluate() {
+        int win = position.countLines(counts);
+        if (win > 0) {
+            return Integer.MAX_VALUE;
+        } else if (win < 0) {
+            return Integer.MIN_VALUE;
+        }
+        return weights.score(counts[0], counts[1], counts[2], counts[3], position.countMiddle());
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+}
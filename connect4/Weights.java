@@ -0,0 +1,77 @@
+package connect4;
+
+/*
+
+The weights the heuristic puts on what it counts, so different settings can be played against each other (see Tournament).
+DEFAULT is the heuristic as it has always been: 250 for every two in a row the AI has, -10 for every two the human has, 1000
+and -100 for threes, and the countMiddle bonus times 10 when the score is within 30 of 0.
+
+*/
+
+public final class Weights {
+    public static final Weights DEFAULT = new Weights(250, -10, 1000, -100, 10);
+
+    public final int two;
+    public final int opponentTwo;
+    public final int three;
+    public final int opponentThree;
+    public final int middle;
+
+    public Weights(int two, int opponentTwo, int three, int opponentThree, int middle) {
+        this.two = two;
+        this.opponentTwo = opponentTwo;
+        this.three = three;
+        this.opponentThree = opponentThree;
+        this.middle = middle;
+    }
+
+    //weights written like "two=300,middle=5". Anything left out keeps its value from DEFAULT. A name that isn't one of the
+    //weights is an IllegalArgumentException, so a misspelled one isn't quietly played with the default.
+    public static Weights parse(String text) {
+        int two = DEFAULT.two;
+        int opponentTwo = DEFAULT.opponentTwo;
+        int three = DEFAULT.three;
+        int opponentThree = DEFAULT.opponentThree;
+        int middle = DEFAULT.middle;
+        for (String pair : text.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Not a weight: " + pair.trim());
+            }
+            String name = pair.substring(0, equals).trim();
+            int value = Integer.parseInt(pair.substring(equals + 1).trim());
+            if (name.equals("two")) {
+                two = value;
+            } else if (name.equals("opponentTwo")) {
+                opponentTwo = value;
+            } else if (name.equals("three")) {
+                three = value;
+            } else if (name.equals("opponentThree")) {
+                opponentThree = value;
+            } else if (name.equals("middle")) {
+                middle = value;
+            } else {
+                throw new IllegalArgumentException("Unknown weight: " + name);
+            }
+        }
+        return new Weights(two, opponentTwo, three, opponentThree, middle);
+    }
+
+    //put the counts together. If the value is very low prioritize the middle of the board.
+    public int score(int twos, int threes, int opponentTwos, int opponentThrees, int middle) {
+        int value = twos * two + opponentTwos * opponentTwo + threes * three + opponentThrees * opponentThree;
+        if (value < 30 & value > -30) {
+            value += middle * this.middle;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "two=" + two + ",opponentTwo=" + opponentTwo + ",three=" + three + ",opponentThree=" + opponentThree
+                + ",middle=" + middle;
+    }
+}